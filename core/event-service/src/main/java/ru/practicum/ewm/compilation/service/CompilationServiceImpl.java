@@ -5,7 +5,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.ewm.client.request.RequestServiceClient;
 import ru.practicum.ewm.client.user.UserServiceClient;
 import ru.practicum.ewm.compilation.dto.CompilationDto;
 import ru.practicum.ewm.compilation.dto.NewCompilationDto;
@@ -14,7 +13,6 @@ import ru.practicum.ewm.compilation.mapper.CompilationMapper;
 import ru.practicum.ewm.compilation.model.Compilation;
 import ru.practicum.ewm.compilation.repository.CompilationRepository;
 import ru.practicum.ewm.dto.event.EventShortDto;
-import ru.practicum.ewm.dto.request.RequestDto;
 import ru.practicum.ewm.dto.user.UserDto;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.repository.EventRepository;
@@ -36,7 +34,6 @@ public class CompilationServiceImpl implements CompilationService {
     private final EventRepository eventRepository;
     private final StatClient statClient;
     private final UserServiceClient userServiceClient;
-    private final RequestServiceClient requestClient;
 
     @Override
     @Transactional
@@ -133,8 +130,7 @@ public class CompilationServiceImpl implements CompilationService {
         List<RecommendedEventProto> ratingList = statClient
                 .getInteractionsCount(events.stream().map(Event::getId).toList()).toList();
         List<UserDto> initiators = getAllInitiators(events);
-        List<RequestDto> confirmedRequestsCount = getConfirmedRequestsForEvents(events);
-        return EventMapper.mapToShortDto(events, initiators, ratingList, confirmedRequestsCount);
+        return EventMapper.mapToShortDto(events, initiators, ratingList);
     }
 
     private List<UserDto> getAllInitiators(List<Event> events) {
@@ -149,20 +145,4 @@ public class CompilationServiceImpl implements CompilationService {
         }
         return users;
     }
-
-    private List<RequestDto> getConfirmedRequestsForEvents(List<Event> events) {
-        log.info("Получаем список подтверждённых запросов для всех событий.");
-        List<Long> eventIds = events.stream().map(Event::getId).toList();
-        List<RequestDto> confirmedRequests = new ArrayList<>();
-        boolean hasMoreElements = true;
-        int from = 0;
-        while (hasMoreElements) {
-            List<RequestDto> requests = requestClient.getAllRequests(eventIds, null, true, from, 100);
-            confirmedRequests.addAll(requests);
-            hasMoreElements = requests.size() == 100;
-            from += 100;
-        }
-        return confirmedRequests;
-    }
 }
-
@@ -7,7 +7,9 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.ewm.api.EventConfirmedRequestsResource;
 import ru.practicum.ewm.api.EventServiceAdminResource;
+import ru.practicum.ewm.dto.event.ConfirmedRequestsUpdate;
 import ru.practicum.ewm.dto.event.EventFullDto;
 import ru.practicum.ewm.dto.event.State;
 import ru.practicum.ewm.dto.event.UpdateEventAdminRequest;
@@ -22,7 +24,7 @@ import java.util.List;
 @AllArgsConstructor
 @RestController
 @Validated
-public class AdminEventController implements EventServiceAdminResource {
+public class AdminEventController implements EventServiceAdminResource, EventConfirmedRequestsResource {
 
     private final EventService eventService;
 
@@ -78,4 +80,10 @@ public class AdminEventController implements EventServiceAdminResource {
         log.info("Запрос на получение события по id");
         return eventService.getEventForAdmin(eventId, includeConfirmedRequests, includeAuthorAdditionalInfo);
     }
+
+    @Override
+    public void updateConfirmedRequests(List<ConfirmedRequestsUpdate> updates) {
+        log.debug("Обновление числа подтвержденных заявок, событий: {}", updates.size());
+        eventService.updateConfirmedRequests(updates);
+    }
 }
@@ -49,6 +49,27 @@ public class Event {
     @Column(name = "participant_limit")
     Integer participantLimit;
 
+    /**
+     * Число подтвержденных заявок. Ведется сервисом заявок, поэтому отстает от него на интервал отправки изменений.
+     * Вместе с версией пишется только запросом EventRepository.updateConfirmedRequests, чтобы сохранение
+     * отредактированного события не вернуло значения, прочитанные при его загрузке
+     */
+    @Column(name = "confirmed_requests", nullable = false, updatable = false)
+    @Builder.Default
+    Integer confirmedRequests = 0;
+
+    @Column(name = "confirmed_requests_version", nullable = false, updatable = false)
+    @Builder.Default
+    Long confirmedRequestsVersion = 0L;
+
+    /**
+     * Рейтинг из сервиса рекомендаций. Обновляется периодически и используется для сортировки в запросе к БД.
+     * Пишется только запросом EventRepository.updateRating, чтобы сохранение события не затерло обновленный рейтинг
+     */
+    @Column(name = "rating", nullable = false, updatable = false)
+    @Builder.Default
+    Double rating = 0.0;
+
     @Enumerated(value = EnumType.STRING)
     State state;
 
@@ -0,0 +1,25 @@
+package ru.practicum.ewm.event.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Блокировка периодической задачи, общая для всех экземпляров сервиса. Задачу выполняет экземпляр,
+ * продливший locked_until, остальные пропускают запуск до истечения срока
+ */
+@Entity
+@Table(name = "scheduled_task_locks")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ScheduledTaskLock {
+    @Id
+    String name;
+    @Column(name = "locked_until", nullable = false)
+    Instant lockedUntil;
+}
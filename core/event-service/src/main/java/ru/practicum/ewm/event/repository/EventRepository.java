@@ -1,10 +1,16 @@
 package ru.practicum.ewm.event.repository;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.dto.event.State;
 import ru.practicum.ewm.event.model.Event;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event> {
@@ -14,4 +20,19 @@ public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPre
     Boolean existsByCategoryId(Long catId);
 
     List<Event> findAllByIdIn(List<Long> eventIds);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = :count, e.confirmedRequestsVersion = :version " +
+            "WHERE e.id = :eventId AND e.confirmedRequestsVersion < :version")
+    int updateConfirmedRequests(@Param("eventId") Long eventId, @Param("count") Integer count,
+                                @Param("version") Long version);
+
+    @Query("SELECT e.id FROM Event e WHERE e.state = :state AND e.eventDate > :after AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<Long> findIdsByStateAndEventDateAfter(@Param("state") State state, @Param("after") LocalDateTime after,
+                                               @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.rating = :rating WHERE e.id = :eventId AND e.rating <> :rating")
+    int updateRating(@Param("eventId") Long eventId, @Param("rating") Double rating);
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.event.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Регистрирует функцию полнотекстового поиска по аннотации и описанию события для JPQL и Querydsl:
+ * {@code function('event_text_match', annotation, description, text)}.
+ * Выражение tsvector совпадает с выражением GIN индекса events_text_search_idx из schema.sql,
+ * поэтому PostgreSQL ищет по индексу. При изменении выражения индекс нужно пересоздать.
+ */
+public class EventSearchFunctionContributor implements FunctionContributor {
+    public static final String TEXT_MATCH_FUNCTION = "event_text_match";
+
+    /**
+     * Выражение индекса и поиска, параметры - аннотация и описание. Используется также в бенчмарке поиска
+     */
+    public static String textVector(String annotation, String description) {
+        return "to_tsvector('russian', coalesce(" + annotation + ", '') || ' ' || coalesce(" + description + ", ''))";
+    }
+
+    public static String textQuery(String text) {
+        return "websearch_to_tsquery('russian', " + text + ")";
+    }
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(TEXT_MATCH_FUNCTION,
+                textVector("?1", "?2") + " @@ " + textQuery("?3"),
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
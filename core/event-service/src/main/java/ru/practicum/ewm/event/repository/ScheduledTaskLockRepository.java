@@ -0,0 +1,26 @@
+package ru.practicum.ewm.event.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.event.model.ScheduledTaskLock;
+
+public interface ScheduledTaskLockRepository extends JpaRepository<ScheduledTaskLock, String> {
+
+    /**
+     * Захватывает задачу на lockMs миллисекунд, если срок прежней блокировки истек. Время берется из БД,
+     * поэтому расхождение часов экземпляров не влияет на результат
+     *
+     * @return 1, если блокировка получена, иначе 0
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO scheduled_task_locks(name, locked_until) " +
+            "VALUES (:name, now() + :lockMs * interval '1 millisecond') " +
+            "ON CONFLICT (name) DO UPDATE SET locked_until = EXCLUDED.locked_until " +
+            "WHERE scheduled_task_locks.locked_until <= now()",
+            nativeQuery = true)
+    int tryLock(@Param("name") String name, @Param("lockMs") long lockMs);
+}
@@ -0,0 +1,8 @@
+package ru.practicum.ewm.event.service;
+
+/**
+ * Данные о событиях, которые загружаются из других сервисов
+ */
+public enum EnrichmentPart {
+    INITIATORS, RATING
+}
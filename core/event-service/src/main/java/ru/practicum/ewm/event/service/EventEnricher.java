@@ -0,0 +1,118 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.client.user.UserServiceClient;
+import ru.practicum.ewm.dto.user.UserDto;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.exception.ServiceUnavailableException;
+import ru.practicum.ewm.stats.client.AsyncStatClient;
+import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Загружает инициаторов и рейтинг событий одновременно: вызов сервиса пользователей выполняется в виртуальном потоке,
+ * рейтинг запрашивается асинхронным клиентом.
+ * Время ответа определяется самым долгим вызовом, а все вызовы вместе ограничены общим таймаутом.
+ * <p>
+ * Идентификаторы извлекаются из сущностей в вызывающем потоке, поэтому другие потоки не обращаются к сущностям
+ * и сессии Hibernate.
+ */
+@Component
+@Slf4j
+public class EventEnricher implements DisposableBean {
+    private final UserServiceClient userServiceClient;
+    private final AsyncStatClient asyncStatClient;
+    private final long timeoutMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public EventEnricher(UserServiceClient userServiceClient, AsyncStatClient asyncStatClient,
+                         @Value("${ewm.enrichment.timeout-ms:3000}") long timeoutMs) {
+        this.userServiceClient = userServiceClient;
+        this.asyncStatClient = asyncStatClient;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Ошибка получения рейтинга не прерывает запрос: рейтинг событий считается нулевым.
+     * Ошибки остальных вызовов пробрасываются, а превышение общего таймаута приводит к
+     * {@link ServiceUnavailableException}
+     */
+    public EventEnrichment enrich(List<Event> events, Set<EnrichmentPart> parts) {
+        List<Long> eventIds = events.stream().map(Event::getId).distinct().toList();
+        List<Long> initiatorIds = events.stream().map(Event::getInitiatorId).distinct().toList();
+        CompletableFuture<List<UserDto>> initiators = parts.contains(EnrichmentPart.INITIATORS)
+                ? CompletableFuture.supplyAsync(() -> getInitiators(initiatorIds), executor)
+                : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<List<RecommendedEventProto>> ratings = parts.contains(EnrichmentPart.RATING)
+                ? getRatings(eventIds)
+                : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<Void> all = CompletableFuture.allOf(initiators, ratings);
+        try {
+            all.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Данные для событий {} не получены за {} мс", eventIds, timeoutMs);
+            initiators.cancel(true);
+            throw new ServiceUnavailableException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ServiceUnavailableException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(e);
+        }
+        return new EventEnrichment(initiators.join(), ratings.join());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Инициатор одного события запрашивается по id: если он не получен, запрос прерывается, как и раньше.
+     * Для списка событий недоступность сервиса пользователей дает пустой список
+     */
+    private List<UserDto> getInitiators(List<Long> ids) {
+        if (ids.size() == 1) {
+            return List.of(userServiceClient.getUserById(ids.getFirst()));
+        }
+        List<UserDto> users = userServiceClient.getAllUsers(ids, 0, ids.size());
+        if (users.isEmpty()) {
+            return users;
+        }
+        if (users.size() < ids.size()) {
+            Set<Long> findUserIds = users.stream().map(UserDto::getId).collect(Collectors.toSet());
+            String missingUserIds = ids.stream().filter(id -> !findUserIds.contains(id))
+                    .map(Object::toString).collect(Collectors.joining(", "));
+            log.debug("Некоторые пользователи не обнаружены при запросе: {}", missingUserIds);
+        }
+        return users;
+    }
+
+    private CompletableFuture<List<RecommendedEventProto>> getRatings(List<Long> eventIds) {
+        CompletableFuture<List<RecommendedEventProto>> ratings;
+        try {
+            ratings = asyncStatClient.getInteractionsCount(eventIds);
+        } catch (Exception e) {
+            ratings = CompletableFuture.failedFuture(e);
+        }
+        return ratings.exceptionally(e -> {
+            log.warn("Не удалось получить рейтинг событий: {}", eventIds, e);
+            return List.of();
+        });
+    }
+}
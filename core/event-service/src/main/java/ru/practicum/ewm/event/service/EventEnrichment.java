@@ -0,0 +1,27 @@
+package ru.practicum.ewm.event.service;
+
+import ru.practicum.ewm.dto.user.UserDto;
+import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
+
+import java.util.List;
+
+/**
+ * Данные о событиях из других сервисов. Незапрошенные части пусты
+ */
+public record EventEnrichment(List<UserDto> initiators, List<RecommendedEventProto> ratings) {
+
+    public double getRating(long eventId) {
+        return ratings.stream()
+                .filter(rating -> rating.getEventId() == eventId)
+                .findFirst()
+                .map(RecommendedEventProto::getScore)
+                .orElse(0.0);
+    }
+
+    public UserDto getInitiator(Long initiatorId) {
+        return initiators.stream()
+                .filter(user -> user.getId().equals(initiatorId))
+                .findFirst()
+                .orElseGet(() -> UserDto.builder().id(initiatorId).build());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.dto.event.State;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.ScheduledTaskLockRepository;
+import ru.practicum.ewm.stats.client.AsyncStatClient;
+import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Периодически копирует рейтинг опубликованных предстоящих событий из сервиса рекомендаций в таблицу событий,
+ * чтобы сортировать по рейтингу в запросе к БД. События перебираются пачками по возрастанию id.
+ * Рейтинг прошедших событий больше не обновляется и остается последним полученным значением.
+ * <p>
+ * Обновление выполняет один экземпляр сервиса за интервал: запуск захватывает блокировку в scheduled_task_locks
+ * на длину интервала, и цикл, не уложившийся в нее, прерывается. Рейтинг следующей пачки запрашивается
+ * до записи текущей, поэтому ожидание ответа совмещается с обновлением таблицы.
+ */
+@Component
+@Slf4j
+public class EventRatingRefresher {
+    private static final String LOCK_NAME = "event-rating-refresh";
+
+    private final EventRepository eventRepository;
+    private final ScheduledTaskLockRepository lockRepository;
+    private final EventService eventService;
+    private final AsyncStatClient asyncStatClient;
+    private final int batchSize;
+    private final long intervalMs;
+
+    public EventRatingRefresher(EventRepository eventRepository, ScheduledTaskLockRepository lockRepository,
+                                EventService eventService, AsyncStatClient asyncStatClient,
+                                @Value("${ewm.rating-cache.batch-size:500}") int batchSize,
+                                @Value("${ewm.rating-cache.interval-ms:60000}") long intervalMs) {
+        this.eventRepository = eventRepository;
+        this.lockRepository = lockRepository;
+        this.eventService = eventService;
+        this.asyncStatClient = asyncStatClient;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.rating-cache.interval-ms:60000}")
+    public void refresh() {
+        if (lockRepository.tryLock(LOCK_NAME, intervalMs) == 0) {
+            log.debug("Рейтинг событий в этом интервале обновляет другой экземпляр");
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        LocalDateTime now = LocalDateTime.now();
+        int refreshed = 0;
+        List<Long> eventIds = findIds(now, 0);
+        CompletableFuture<List<RecommendedEventProto>> ratings = requestRatings(eventIds);
+        while (!eventIds.isEmpty()) {
+            List<Long> nextEventIds = eventIds.size() == batchSize ? findIds(now, eventIds.getLast()) : List.of();
+            CompletableFuture<List<RecommendedEventProto>> nextRatings = requestRatings(nextEventIds);
+            List<RecommendedEventProto> received;
+            try {
+                // Каждый вызов ограничен дедлайном клиента статистики, весь цикл - сроком блокировки
+                received = ratings.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Не удалось получить рейтинг событий, обновление отложено до следующего цикла", e);
+                return;
+            }
+            // События, по которым нет взаимодействий, в ответ не попадают и получают нулевой рейтинг
+            Map<Long, Double> byEventId = new HashMap<>();
+            eventIds.forEach(eventId -> byEventId.put(eventId, 0.0));
+            received.forEach(rating -> byEventId.put(rating.getEventId(), rating.getScore()));
+            eventService.updateRatings(byEventId);
+            refreshed += eventIds.size();
+            eventIds = nextEventIds;
+            ratings = nextRatings;
+        }
+        log.debug("Рейтинг обновлен для {} событий", refreshed);
+    }
+
+    private List<Long> findIds(LocalDateTime now, long afterId) {
+        return eventRepository.findIdsByStateAndEventDateAfter(State.PUBLISHED, now, afterId,
+                PageRequest.of(0, batchSize));
+    }
+
+    private CompletableFuture<List<RecommendedEventProto>> requestRatings(List<Long> eventIds) {
+        return eventIds.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : asyncStatClient.getInteractionsCount(eventIds);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.ewm.event.service;
 
 import jakarta.servlet.http.HttpServletRequest;
+import ru.practicum.ewm.dto.event.ConfirmedRequestsUpdate;
 import ru.practicum.ewm.dto.event.EventFullDto;
 import ru.practicum.ewm.dto.event.EventShortDto;
 import ru.practicum.ewm.dto.event.UpdateEventAdminRequest;
@@ -10,6 +11,7 @@ import ru.practicum.ewm.event.dto.NewEventDto;
 import ru.practicum.ewm.event.dto.UpdateEventUserRequest;
 
 import java.util.List;
+import java.util.Map;
 
 public interface EventService {
     EventFullDto addEvent(NewEventDto eventDto, Long userId);
@@ -33,4 +35,8 @@ public interface EventService {
     List<EventShortDto> getRecommendedEvents(Long userId, Integer maxResult);
 
     EventShortDto likeEvent(Long userId, Long eventId);
+
+    void updateConfirmedRequests(List<ConfirmedRequestsUpdate> updates);
+
+    void updateRatings(Map<Long, Double> ratings);
 }
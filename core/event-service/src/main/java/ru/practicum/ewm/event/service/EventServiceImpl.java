@@ -1,6 +1,7 @@
 package ru.practicum.ewm.event.service;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +16,6 @@ import ru.practicum.ewm.category.repository.CategoryRepository;
 import ru.practicum.ewm.client.request.RequestServiceClient;
 import ru.practicum.ewm.client.user.UserServiceClient;
 import ru.practicum.ewm.dto.event.*;
-import ru.practicum.ewm.dto.request.RequestDto;
 import ru.practicum.ewm.dto.user.UserDto;
 import ru.practicum.ewm.event.dto.EventAdminFilter;
 import ru.practicum.ewm.event.dto.EventPublicFilter;
@@ -24,16 +24,17 @@ import ru.practicum.ewm.event.dto.UpdateEventUserRequest;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.QEvent;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventSearchFunctionContributor;
 import ru.practicum.ewm.exception.*;
 import ru.practicum.ewm.mapper.EventMapper;
 import ru.practicum.ewm.mapper.UserMapper;
 import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.UserActionCollector;
 import ru.practicum.ewm.stats.client.UserActionType;
 import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -51,9 +52,16 @@ public class EventServiceImpl implements EventService {
 
     private final StatClient statClient;
 
+    private final EventEnricher eventEnricher;
+
+    private final UserActionCollector userActionCollector;
+
     @Value("${ewm.service.name}")
     private String serviceName;
 
+    @Value("${ewm.search.full-text:true}")
+    private boolean fullTextSearch;
+
     @Override
     @Transactional
     public EventFullDto addEvent(NewEventDto eventDto, Long userId) {
@@ -77,7 +85,8 @@ public class EventServiceImpl implements EventService {
         if (events.isEmpty()) {
             return List.of();
         }
-        return EventMapper.mapToShortDto(events, List.of(initiator), getRating(events), getConfirmedRequests(events));
+        EventEnrichment enrichment = eventEnricher.enrich(events, EnumSet.of(EnrichmentPart.RATING));
+        return EventMapper.mapToShortDto(events, List.of(initiator), enrichment.ratings());
     }
 
     @Override
@@ -87,11 +96,9 @@ public class EventServiceImpl implements EventService {
         if (!Objects.equals(event.getInitiatorId(), userId)) {
             throw new ValidationException("Можно просмотреть только своё событие");
         }
-        Optional<RecommendedEventProto> ratingOpt = getRating(List.of(event)).stream().findFirst();
-        double rating = ratingOpt.map(RecommendedEventProto::getScore).orElse(0.0);
-        int confirmedRequestCount = getConfirmedRequests(List.of(event)).size();
-        return EventMapper.mapToFullDto(event, rating, UserMapper.mapToUserShort(initiator),
-                confirmedRequestCount);
+        EventEnrichment enrichment = eventEnricher.enrich(List.of(event), EnumSet.of(EnrichmentPart.RATING));
+        return EventMapper.mapToFullDto(event, enrichment.getRating(eventId), UserMapper.mapToUserShort(initiator),
+                event.getConfirmedRequests());
     }
 
     @Override
@@ -151,28 +158,32 @@ public class EventServiceImpl implements EventService {
                 event.setState(State.CANCELED);
             }
         }
-        int confirmedRequestCount = getConfirmedRequests(List.of(event)).size();
         return EventMapper.mapToFullDto(event, 0.0, UserMapper.mapToUserShort(initiator),
-                confirmedRequestCount);
+                event.getConfirmedRequests());
     }
 
     //public Получение событий с возможностью фильтрации
     @Override
     public List<EventShortDto> getPublicEventsByFilter(HttpServletRequest httpServletRequest,
                                                        EventPublicFilter inputFilter) {
+        // Сортировка выполняется в БД до разбиения на страницы, id делает порядок однозначным между страницами
+        Sort sort = switch (inputFilter.getSort()) {
+            case EVENT_DATE -> Sort.by("eventDate", "id");
+            case RATING -> Sort.by(Sort.Direction.DESC, "rating").and(Sort.by("id"));
+        };
         PageRequest pageRequest = PageRequest.of(inputFilter.getFrom() / inputFilter.getSize(),
-                inputFilter.getSize());
+                inputFilter.getSize(), sort);
 
-        inputFilter.setText("%" + inputFilter.getText().trim() + "%");
-
-        BooleanExpression conditions = QEvent.event.annotation.likeIgnoreCase(inputFilter.getText())
-                .or(QEvent.event.description.likeIgnoreCase(inputFilter.getText()))
-                .and(QEvent.event.state.in(State.PUBLISHED));
+        BooleanExpression conditions = QEvent.event.state.in(State.PUBLISHED);
+        String text = inputFilter.getText().trim();
+        if (!text.isEmpty()) {
+            conditions = conditions.and(textMatches(text));
+        }
         if (inputFilter.getCategories() != null) {
             conditions = conditions.and(QEvent.event.category.id.in(inputFilter.getCategories()));
         }
         if (inputFilter.getPaid() != null) {
-            conditions.and(QEvent.event.paid.eq(inputFilter.getPaid()));
+            conditions = conditions.and(QEvent.event.paid.eq(inputFilter.getPaid()));
         }
         if (inputFilter.getRangeStart() != null && inputFilter.getRangeEnd() != null) {
             conditions = conditions.and(QEvent.event.eventDate.after(inputFilter.getRangeStart()))
@@ -180,31 +191,19 @@ public class EventServiceImpl implements EventService {
         } else {
             conditions = conditions.and(QEvent.event.eventDate.after(LocalDateTime.now()));
         }
+        if (inputFilter.getOnlyAvailable()) {
+            // Лимит 0 означает неограниченное число участников
+            conditions = conditions.and(QEvent.event.participantLimit.eq(0)
+                    .or(QEvent.event.confirmedRequests.lt(QEvent.event.participantLimit)));
+        }
         List<Event> events = eventRepository.findAll(conditions, pageRequest).getContent();
 
         if (events.isEmpty()) {
             return new ArrayList<>();
         }
-        Map<Long, Integer> confirmedRequestsCountMap = getConfirmedRequests(events)
-                .stream().collect(Collectors.groupingBy(RequestDto::getEvent, Collectors.reducing(0, e -> 1, Integer::sum)));
-        if (inputFilter.getOnlyAvailable()) {
-            if (!confirmedRequestsCountMap.isEmpty()) {
-                events = events.stream()
-                        .filter(event -> confirmedRequestsCountMap.get(event.getId()) < event.getParticipantLimit()).toList();
-            } else {
-                log.debug("Запрос отклонен так как нет необходимых данных о подтвержденных заявках");
-                throw new ServiceUnavailableException();
-            }
-        }
-        List<EventShortDto> result = EventMapper.mapToShortDto(events, getInitiators(events),
-                getRating(events), confirmedRequestsCountMap);
-        List<EventShortDto> resultList = new ArrayList<>(result);
-
-        switch (inputFilter.getSort()) {
-            case EVENT_DATE -> resultList.sort(Comparator.comparing(EventShortDto::getEventDate));
-            case RATING -> resultList.sort(Comparator.comparing(EventShortDto::getRating).reversed());
-        }
-        return resultList;
+        // Показывается сохраненный рейтинг, по которому отсортирована страница
+        EventEnrichment enrichment = eventEnricher.enrich(events, EnumSet.of(EnrichmentPart.INITIATORS));
+        return EventMapper.mapToShortDto(events, enrichment.initiators());
     }
 
     //public Получение подробной информации об опубликованном событии по его идентификатору
@@ -214,16 +213,13 @@ public class EventServiceImpl implements EventService {
                 () -> new NotFoundRecordInBDException(String.format("Не найдено событие в БД с ID = %d.", eventId)));
         if (event.getState() != State.PUBLISHED)
             throw new NotFoundException("Посмотреть можно только опубликованное событие.");
-        Optional<RecommendedEventProto> rating = getRating(List.of(event)).stream().findFirst();
-        UserDto initiator = userServiceClient.getUserById(event.getInitiatorId());
-        int confirmedRequestCount = getConfirmedRequests(List.of(event)).size();
-        EventFullDto result = EventMapper.mapToFullDto(event, rating.map(RecommendedEventProto::getScore).orElse(0.0),
-                UserMapper.mapToUserShort(initiator), confirmedRequestCount);
-        try {
-            statClient.collectUserAction(userId, eventId, UserActionType.VIEW);
-            log.info("Передали информацию просмотре пользователем: {} события: {} в сервис рекомендаций", userId, eventId);
-        } catch (SaveStatsException e) {
-            log.error("Не удалось передать информацию о просмотре пользователем: {} события: {}", userId, eventId, e);
+        EventEnrichment enrichment = eventEnricher.enrich(List.of(event), EnumSet.allOf(EnrichmentPart.class));
+        EventFullDto result = EventMapper.mapToFullDto(event, enrichment.getRating(eventId),
+                UserMapper.mapToUserShort(enrichment.getInitiator(event.getInitiatorId())),
+                event.getConfirmedRequests());
+        // Просмотр уходит в сервис рекомендаций пачкой из фонового потока и не задерживает ответ
+        if (!userActionCollector.collect(userId, eventId, UserActionType.VIEW)) {
+            log.warn("Очередь действий заполнена, просмотр пользователем: {} события: {} не передан", userId, eventId);
         }
         return result;
     }
@@ -256,13 +252,9 @@ public class EventServiceImpl implements EventService {
         if (events.isEmpty()) {
             return List.of();
         }
-        List<RequestDto> confirmedRequests;
-        if (input.getIncludeConfirmedRequests()) {
-            confirmedRequests = getConfirmedRequests(events);
-        } else {
-            confirmedRequests = List.of();
-        }
-        return EventMapper.mapToFullDto(events, getInitiators(events), getRating(events), confirmedRequests);
+        EventEnrichment enrichment = eventEnricher.enrich(events, EnumSet.allOf(EnrichmentPart.class));
+        return EventMapper.mapToFullDto(events, enrichment.initiators(), enrichment.ratings(),
+                input.getIncludeConfirmedRequests());
     }
 
 
@@ -323,30 +315,24 @@ public class EventServiceImpl implements EventService {
         }
         event = eventRepository.save(event);
 
-        Optional<RecommendedEventProto> rating = getRating(List.of(event)).stream().findFirst();
-        UserDto initiator = userServiceClient.getUserById(event.getInitiatorId());
-        int confirmedRequestCount = getConfirmedRequests(List.of(event)).size();
-        return EventMapper.mapToFullDto(event, rating.map(RecommendedEventProto::getScore).orElse(0.0),
-                UserMapper.mapToUserShort(initiator), confirmedRequestCount);
+        EventEnrichment enrichment = eventEnricher.enrich(List.of(event), EnumSet.allOf(EnrichmentPart.class));
+        return EventMapper.mapToFullDto(event, enrichment.getRating(eventId),
+                UserMapper.mapToUserShort(enrichment.getInitiator(event.getInitiatorId())),
+                event.getConfirmedRequests());
     }
 
     @Override
     public EventFullDto getEventForAdmin(Long eventId, Boolean includeConfirmedRequests, Boolean includeAuthorAdditionalInfo) {
         Event event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new NotFoundRecordInBDException(String.format("Не найдено событие в БД с ID = %d.", eventId)));
-        int confirmedRequestCount = 0;
-        if (includeConfirmedRequests) {
-            confirmedRequestCount = getConfirmedRequests(List.of(event)).size();
-        }
-        UserDto initiator;
+        Set<EnrichmentPart> parts = EnumSet.of(EnrichmentPart.RATING);
         if (includeAuthorAdditionalInfo) {
-            initiator = userServiceClient.getUserById(event.getInitiatorId());
-        } else {
-            initiator = UserDto.builder().id(event.getInitiatorId()).build();
+            parts.add(EnrichmentPart.INITIATORS);
         }
-        Optional<RecommendedEventProto> rating = getRating(List.of(event)).stream().findFirst();
-        return EventMapper.mapToFullDto(event, rating.map(RecommendedEventProto::getScore).orElse(0.0),
-                UserMapper.mapToUserShort(initiator), confirmedRequestCount);
+        EventEnrichment enrichment = eventEnricher.enrich(List.of(event), parts);
+        return EventMapper.mapToFullDto(event, enrichment.getRating(eventId),
+                UserMapper.mapToUserShort(enrichment.getInitiator(event.getInitiatorId())),
+                includeConfirmedRequests ? event.getConfirmedRequests() : 0);
     }
 
     @Override
@@ -354,25 +340,62 @@ public class EventServiceImpl implements EventService {
         List<Long> eventIds = statClient.getRecommendationsForUser(userId, maxResult)
                 .map(RecommendedEventProto::getEventId).toList();
         List<Event> events = eventRepository.findAllByIdIn(eventIds);
-        return EventMapper.mapToShortDto(events, getInitiators(events), getRating(events), getConfirmedRequests(events));
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        EventEnrichment enrichment = eventEnricher.enrich(events, EnumSet.allOf(EnrichmentPart.class));
+        return EventMapper.mapToShortDto(events, enrichment.initiators(), enrichment.ratings());
     }
 
     @Override
     public EventShortDto likeEvent(Long userId, Long eventId) {
         Event event = eventRepository.findById(eventId).orElseThrow(
                 () -> new NotFoundRecordInBDException(String.format("Не найдено событие в БД с ID = %d.", eventId)));
-        List<RequestDto> confirmedRequests = getConfirmedRequests(List.of(event));
-        boolean isParticipant = confirmedRequests.stream().anyMatch(requestDto -> requestDto.getRequester().equals(userId));
-        ;
+        // Достаточно найти одну подтвержденную заявку пользователя, а не загружать все заявки события
+        boolean isParticipant = !requestClient.getAllRequests(List.of(eventId), List.of(userId), true, 0, 1).isEmpty();
         if (!isParticipant) {
             throw new BadRequestException("Пользователь не может лайкать событие в котором не учавствовал");
         }
         statClient.collectUserAction(userId, eventId, UserActionType.LIKE);
-        Optional<RecommendedEventProto> rating = getRating(List.of(event)).stream().findFirst();
-        UserDto initiator = userServiceClient.getUserById(event.getInitiatorId());
-        int confirmedRequestCount = confirmedRequests.size();
-        return EventMapper.mapToShortDto(event, rating.map(RecommendedEventProto::getScore).orElse(0.0),
-                UserMapper.mapToUserShort(initiator), confirmedRequestCount);
+        EventEnrichment enrichment = eventEnricher.enrich(List.of(event), EnumSet.allOf(EnrichmentPart.class));
+        return EventMapper.mapToShortDto(event, enrichment.getRating(eventId),
+                UserMapper.mapToUserShort(enrichment.getInitiator(event.getInitiatorId())),
+                event.getConfirmedRequests());
+    }
+
+    @Override
+    @Transactional
+    public void updateConfirmedRequests(List<ConfirmedRequestsUpdate> updates) {
+        int updated = 0;
+        for (ConfirmedRequestsUpdate update : updates) {
+            updated += eventRepository.updateConfirmedRequests(update.getEventId(), update.getConfirmedRequests(),
+                    update.getVersion());
+        }
+        log.debug("Обновлено число подтвержденных заявок у {} из {} событий", updated, updates.size());
+    }
+
+    @Override
+    @Transactional
+    public void updateRatings(Map<Long, Double> ratings) {
+        int updated = 0;
+        for (Map.Entry<Long, Double> rating : ratings.entrySet()) {
+            updated += eventRepository.updateRating(rating.getKey(), rating.getValue());
+        }
+        log.debug("Изменился рейтинг у {} из {} событий", updated, ratings.size());
+    }
+
+    /**
+     * Полнотекстовый поиск по словам с учетом словоформ использует GIN индекс. Поиск подстроки через LIKE
+     * оставлен на случай отключения ewm.search.full-text, он просматривает всю таблицу событий
+     */
+    private BooleanExpression textMatches(String text) {
+        if (!fullTextSearch) {
+            String pattern = "%" + text + "%";
+            return QEvent.event.annotation.likeIgnoreCase(pattern)
+                    .or(QEvent.event.description.likeIgnoreCase(pattern));
+        }
+        return Expressions.booleanTemplate("function('" + EventSearchFunctionContributor.TEXT_MATCH_FUNCTION +
+                "', {0}, {1}, {2}) = true", QEvent.event.annotation, QEvent.event.description, text);
     }
 
     private void checkFields(NewEventDto dto) {
@@ -411,38 +434,4 @@ public class EventServiceImpl implements EventService {
             }
         }
     }
-
-    private List<UserDto> getInitiators(List<Event> events) {
-        List<Long> ids = events.stream().map(Event::getInitiatorId).distinct().toList();
-        List<UserDto> users = userServiceClient.getAllUsers(ids, 0, ids.size());
-        if (users.isEmpty()) {
-            return users;
-        }
-        if (users.size() < ids.size()) {
-            Set<Long> findUserIds = users.stream().map(UserDto::getId).collect(Collectors.toSet());
-            String missingUserIds = ids.stream().filter(id -> !findUserIds.contains(id))
-                    .map(Object::toString).collect(Collectors.joining(", "));
-            log.debug("Некоторые пользователи не обнаружены при запросе: {}", missingUserIds);
-        }
-        return users;
-    }
-
-    private List<RequestDto> getConfirmedRequests(List<Event> events) {
-        log.info("Получаем список подтверждённых запросов для всех событий.");
-        List<Long> eventIds = events.stream().map(Event::getId).distinct().toList();
-        List<RequestDto> confirmedRequests = new ArrayList<>();
-        boolean hasMoreElements = true;
-        int from = 0;
-        while (hasMoreElements) {
-            List<RequestDto> requests = requestClient.getAllRequests(eventIds, null, true, from, 100);
-            confirmedRequests.addAll(requests);
-            hasMoreElements = requests.size() == 100;
-            from += 100;
-        }
-        return confirmedRequests;
-    }
-
-    private List<RecommendedEventProto> getRating(List<Event> events) {
-        return statClient.getInteractionsCount(events.stream().map(Event::getId).toList()).toList();
-    }
 }
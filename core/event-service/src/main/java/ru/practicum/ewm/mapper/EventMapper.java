@@ -7,7 +7,6 @@ import ru.practicum.ewm.dto.event.EventFullDto;
 import ru.practicum.ewm.dto.event.EventShortDto;
 import ru.practicum.ewm.dto.event.Location;
 import ru.practicum.ewm.dto.event.State;
-import ru.practicum.ewm.dto.request.RequestDto;
 import ru.practicum.ewm.dto.user.UserDto;
 import ru.practicum.ewm.dto.user.UserShortDto;
 import ru.practicum.ewm.event.dto.NewEventDto;
@@ -80,15 +79,7 @@ public class EventMapper {
                 .build();
     }
 
-    public List<EventShortDto> mapToShortDto(List<Event> events, List<UserDto> initiators, List<RecommendedEventProto> ratingList,
-                                             List<RequestDto> confirmedRequests) {
-        Map<Long, Integer> confirmedRequestsCountMap = confirmedRequests.stream()
-                .collect(Collectors.groupingBy(RequestDto::getEvent, Collectors.reducing(0, e -> 1, Integer::sum)));
-        return mapToShortDto(events, initiators, ratingList, confirmedRequestsCountMap);
-    }
-
-    public List<EventShortDto> mapToShortDto(List<Event> events, List<UserDto> initiators, List<RecommendedEventProto> ratingList,
-                                             Map<Long, Integer> confirmedRequestsCountMap) {
+    public List<EventShortDto> mapToShortDto(List<Event> events, List<UserDto> initiators, List<RecommendedEventProto> ratingList) {
         Map<Long, UserDto> initiatorsMap = initiators.stream()
                 .collect(Collectors.toMap(UserDto::getId, Function.identity()));
         return events.stream().map(event -> {
@@ -96,19 +87,27 @@ public class EventMapper {
             Optional<RecommendedEventProto> rating = ratingList.stream()
                     .filter(recommendedEvent -> recommendedEvent.getEventId() == eventId)
                     .findFirst();
-            Integer confirmedRequestsCount = confirmedRequestsCountMap.get(eventId);
             UserDto initiator = initiatorsMap.get(event.getInitiatorId());
             return mapToShortDto(event,
                     rating.map(RecommendedEventProto::getScore).orElse(0.0),
                     initiator != null ? UserMapper.mapToUserShort(initiator) : null,
-                    confirmedRequestsCount != null ? confirmedRequestsCount : 0);
+                    event.getConfirmedRequests());
+        }).toList();
+    }
+
+    public List<EventShortDto> mapToShortDto(List<Event> events, List<UserDto> initiators) {
+        Map<Long, UserDto> initiatorsMap = initiators.stream()
+                .collect(Collectors.toMap(UserDto::getId, Function.identity()));
+        return events.stream().map(event -> {
+            UserDto initiator = initiatorsMap.get(event.getInitiatorId());
+            return mapToShortDto(event, event.getRating(),
+                    initiator != null ? UserMapper.mapToUserShort(initiator) : null,
+                    event.getConfirmedRequests());
         }).toList();
     }
 
-    public List<EventFullDto> mapToFullDto(List<Event> events, List<UserDto> initiators, List<RecommendedEventProto> ratingList,
-                                           List<RequestDto> confirmedRequests) {
-        Map<Long, Integer> confirmedRequestsCountMap = confirmedRequests.stream()
-                .collect(Collectors.groupingBy(RequestDto::getEvent, Collectors.reducing(0, e -> 1, Integer::sum)));
+    public List<EventFullDto> mapToFullDto(List<Event> events, List<UserDto> initiators,
+                                           List<RecommendedEventProto> ratingList, boolean includeConfirmedRequests) {
         Map<Long, UserDto> initiatorsMap = initiators.stream()
                 .collect(Collectors.toMap(UserDto::getId, Function.identity()));
         return events.stream().map(event -> {
@@ -117,10 +116,9 @@ public class EventMapper {
                             .filter(recommendedEvent -> recommendedEvent.getEventId() == eventId)
                             .findFirst();
                     UserDto initiator = initiatorsMap.get(event.getInitiatorId());
-                    var requests = confirmedRequestsCountMap.get(eventId);
                     return mapToFullDto(event, rating.map(RecommendedEventProto::getScore).orElse(0.0),
                             initiator != null ? UserMapper.mapToUserShort(initiator) : null,
-                            requests != null ? requests : 0);
+                            includeConfirmedRequests ? event.getConfirmedRequests() : 0);
                 })
                 .toList();
     }
@@ -15,6 +15,9 @@ CREATE TABLE IF NOT EXISTS events(
     initiator_id BIGINT NOT NULL,
     paid BOOLEAN,
     participant_limit int,
+    confirmed_requests int NOT NULL DEFAULT 0,
+    confirmed_requests_version BIGINT NOT NULL DEFAULT 0,
+    rating DOUBLE PRECISION NOT NULL DEFAULT 0,
     state varchar(50) NOT NULL,
     request_moderation BOOLEAN,
     title varchar(120),
@@ -23,6 +26,21 @@ CREATE TABLE IF NOT EXISTS events(
     commenting BOOLEAN
 );
 
+ALTER TABLE events ADD COLUMN IF NOT EXISTS confirmed_requests int NOT NULL DEFAULT 0;
+ALTER TABLE events ADD COLUMN IF NOT EXISTS confirmed_requests_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE events ADD COLUMN IF NOT EXISTS rating DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS events_state_event_date_idx ON events(state, event_date);
+CREATE INDEX IF NOT EXISTS events_state_rating_idx ON events(state, rating DESC, event_id);
+-- Выражение должно совпадать с функцией event_text_match из EventSearchFunctionContributor
+CREATE INDEX IF NOT EXISTS events_text_search_idx ON events
+    USING GIN (to_tsvector('russian', coalesce(annotation, '') || ' ' || coalesce(description, '')));
+
+CREATE TABLE IF NOT EXISTS scheduled_task_locks(
+    name varchar(64) PRIMARY KEY,
+    locked_until timestamptz NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS compilations(
    compilation_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
    pinned BOOLEAN,
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.api;
+
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import ru.practicum.ewm.dto.event.ConfirmedRequestsUpdate;
+
+import java.util.List;
+
+public interface EventConfirmedRequestsResource {
+
+    /**
+     * Обновляет хранящееся в событиях число подтвержденных заявок. Вызывается сервисом заявок
+     */
+    @PutMapping("/admin/events/confirmed-requests")
+    void updateConfirmedRequests(@RequestBody List<ConfirmedRequestsUpdate> updates);
+}
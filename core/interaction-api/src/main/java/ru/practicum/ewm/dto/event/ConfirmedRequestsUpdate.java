@@ -0,0 +1,24 @@
+package ru.practicum.ewm.dto.event;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Текущее число подтвержденных заявок события. Версия своя у каждого события и растет в порядке фиксации
+ * изменений его заявок: событие принимает число, только если версия больше сохраненной, поэтому повторная
+ * или запоздавшая отправка не откатывает счетчик
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ConfirmedRequestsUpdate {
+    Long eventId;
+    Integer confirmedRequests;
+    Long version;
+}
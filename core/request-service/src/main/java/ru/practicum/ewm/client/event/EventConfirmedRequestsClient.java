@@ -0,0 +1,11 @@
+package ru.practicum.ewm.client.event;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import ru.practicum.ewm.api.EventConfirmedRequestsResource;
+
+/**
+ * Без резервного метода: при ошибке изменения остаются в очереди и отправляются повторно
+ */
+@FeignClient(name = "event-service", contextId = "eventConfirmedRequestsClient")
+public interface EventConfirmedRequestsClient extends EventConfirmedRequestsResource {
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись исходящей очереди: число подтвержденных заявок события изменилось и должно быть отправлено
+ * в сервис событий. Сохраняется в одной транзакции с изменением заявки
+ */
+@Entity
+@Table(name = "confirmed_requests_changes")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ConfirmedRequestsChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "change_id")
+    Long id;
+    @Column(name = "event_id")
+    Long eventId;
+    @Builder.Default
+    LocalDateTime created = LocalDateTime.now();
+}
@@ -0,0 +1,26 @@
+package ru.practicum.ewm.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Число подтвержденных заявок события и его версия. Версия увеличивается под блокировкой строки в той же
+ * транзакции, что меняет заявки, поэтому порядок версий события совпадает с порядком фиксации изменений,
+ * а число соответствует своей версии
+ */
+@Entity
+@Table(name = "event_confirmed_requests")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class EventConfirmedRequests {
+    @Id
+    @Column(name = "event_id")
+    Long eventId;
+    @Column(name = "confirmed_requests")
+    Integer confirmedRequests;
+    Long version;
+}
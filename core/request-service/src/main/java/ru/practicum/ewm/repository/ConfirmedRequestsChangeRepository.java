@@ -0,0 +1,12 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.ewm.model.ConfirmedRequestsChange;
+
+import java.util.List;
+
+public interface ConfirmedRequestsChangeRepository extends JpaRepository<ConfirmedRequestsChange, Long> {
+
+    List<ConfirmedRequestsChange> findAllByOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,31 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.ewm.model.EventConfirmedRequests;
+
+public interface EventConfirmedRequestsRepository extends JpaRepository<EventConfirmedRequests, Long> {
+
+    /**
+     * Увеличивает версию события и блокирует его строку до конца транзакции
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO event_confirmed_requests(event_id, confirmed_requests, version) " +
+            "VALUES (:eventId, 0, 1) " +
+            "ON CONFLICT (event_id) DO UPDATE SET version = event_confirmed_requests.version + 1",
+            nativeQuery = true)
+    void incrementVersion(@Param("eventId") Long eventId);
+
+    /**
+     * Пересчитывает число по заявкам. Вызывается после {@link #incrementVersion}: отдельный запрос видит
+     * изменения транзакций, зафиксированных до получения блокировки
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE event_confirmed_requests SET confirmed_requests = (" +
+            "SELECT count(*) FROM participation_requests r WHERE r.event_id = :eventId AND r.status = 'CONFIRMED') " +
+            "WHERE event_id = :eventId",
+            nativeQuery = true)
+    void recount(@Param("eventId") Long eventId);
+}
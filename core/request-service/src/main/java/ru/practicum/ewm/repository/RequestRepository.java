@@ -19,5 +19,5 @@ public interface RequestRepository extends JpaRepository<Request, Long>,
 
     List<Request> findAllByEventId(Long eventId);
 
-    List<Request> findAllByStatusAndEventId(Status status, Long eventId);
+    long countByStatusAndEventId(Status status, Long eventId);
 }
@@ -0,0 +1,64 @@
+package ru.practicum.ewm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.client.event.EventConfirmedRequestsClient;
+import ru.practicum.ewm.dto.event.ConfirmedRequestsUpdate;
+import ru.practicum.ewm.model.ConfirmedRequestsChange;
+import ru.practicum.ewm.repository.ConfirmedRequestsChangeRepository;
+import ru.practicum.ewm.repository.EventConfirmedRequestsRepository;
+
+import java.util.List;
+
+/**
+ * Отправляет в сервис событий число подтвержденных заявок событий из исходящей очереди.
+ * Очередь служит только списком измененных событий: отправляется не разница, а текущее число из счетчика события
+ * с его собственной версией. Поэтому повторная отправка после сбоя безопасна, а сервис событий отбрасывает
+ * устаревшие значения, в том числе от других экземпляров сервиса заявок. Изменение, чья транзакция еще не
+ * зафиксирована, не видно при чтении очереди и будет отправлено в следующем цикле с большей версией.
+ */
+@Component
+@Slf4j
+public class ConfirmedRequestsRelay {
+    private final ConfirmedRequestsChangeRepository changeRepository;
+    private final EventConfirmedRequestsRepository countersRepository;
+    private final EventConfirmedRequestsClient eventClient;
+    private final int batchSize;
+
+    public ConfirmedRequestsRelay(ConfirmedRequestsChangeRepository changeRepository, EventConfirmedRequestsRepository countersRepository,
+                                  EventConfirmedRequestsClient eventClient,
+                                  @Value("${request-service.confirmed-requests-relay.batch-size:500}") int batchSize) {
+        this.changeRepository = changeRepository;
+        this.countersRepository = countersRepository;
+        this.eventClient = eventClient;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${request-service.confirmed-requests-relay.interval-ms:1000}")
+    public void relay() {
+        List<ConfirmedRequestsChange> changes;
+        do {
+            changes = changeRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (changes.isEmpty()) {
+                return;
+            }
+            List<Long> eventIds = changes.stream().map(ConfirmedRequestsChange::getEventId).distinct().toList();
+            List<ConfirmedRequestsUpdate> updates = countersRepository.findAllById(eventIds).stream()
+                    .map(counter -> new ConfirmedRequestsUpdate(counter.getEventId(), counter.getConfirmedRequests(),
+                            counter.getVersion()))
+                    .toList();
+            try {
+                eventClient.updateConfirmedRequests(updates);
+            } catch (Exception e) {
+                log.warn("Не удалось отправить число подтвержденных заявок для событий: {}, повтор в следующем цикле",
+                        eventIds, e);
+                return;
+            }
+            changeRepository.deleteAllInBatch(changes);
+            log.debug("Отправлено число подтвержденных заявок для событий: {}", eventIds);
+        } while (changes.size() == batchSize);
+    }
+}
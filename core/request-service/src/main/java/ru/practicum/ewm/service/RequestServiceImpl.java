@@ -8,6 +8,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.ewm.client.event.EventServiceClient;
 import ru.practicum.ewm.client.user.UserServiceClient;
 import ru.practicum.ewm.dto.EventRequestStatusUpdateRequest;
@@ -19,10 +21,13 @@ import ru.practicum.ewm.dto.request.RequestDto;
 import ru.practicum.ewm.dto.request.Status;
 import ru.practicum.ewm.exception.*;
 import ru.practicum.ewm.mapper.RequestMapper;
+import ru.practicum.ewm.model.ConfirmedRequestsChange;
 import ru.practicum.ewm.model.QRequest;
 import ru.practicum.ewm.model.Request;
+import ru.practicum.ewm.repository.ConfirmedRequestsChangeRepository;
+import ru.practicum.ewm.repository.EventConfirmedRequestsRepository;
 import ru.practicum.ewm.repository.RequestRepository;
-import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.UserActionCollector;
 import ru.practicum.ewm.stats.client.UserActionType;
 
 import java.util.ArrayList;
@@ -36,9 +41,11 @@ import java.util.Objects;
 @Transactional(readOnly = true)
 public class RequestServiceImpl implements RequestService {
     private final RequestRepository requestRepository;
+    private final ConfirmedRequestsChangeRepository confirmedRequestsChangeRepository;
+    private final EventConfirmedRequestsRepository eventConfirmedRequestsRepository;
     private final UserServiceClient userServiceClient;
     private final EventServiceClient eventServiceClient;
-    private final StatClient statClient;
+    private final UserActionCollector userActionCollector;
 
     @Transactional
     @Override
@@ -58,7 +65,7 @@ public class RequestServiceImpl implements RequestService {
             throw new ConflictDataException("Нельзя участвовать в неопубликованном событии");
         }
         Integer participantLimit = event.getParticipantLimit();
-        Integer confirmedRequests = requestRepository.findAllByStatusAndEventId(Status.CONFIRMED, eventId).size();
+        Integer confirmedRequests = (int) requestRepository.countByStatusAndEventId(Status.CONFIRMED, eventId);
         if (!participantLimit.equals(0) && participantLimit.equals(confirmedRequests)) {
             throw new ConflictDataException("Лимит запросов на участие в событии уже достигнут");
         }
@@ -72,7 +79,20 @@ public class RequestServiceImpl implements RequestService {
                 .eventId(eventId)
                 .status(status)
                 .build());
-        statClient.collectUserAction(userId, eventId, UserActionType.REGISTER);
+        if (status == Status.CONFIRMED) {
+            recordConfirmedRequestsChange(eventId);
+        }
+        // Регистрация передается только после фиксации заявки, пачкой из фонового потока. Отброшенные действия
+        // учитываются в метрике stats.client.user-actions с тегом result=dropped
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (!userActionCollector.collect(userId, eventId, UserActionType.REGISTER)) {
+                    log.warn("Очередь действий заполнена, регистрация пользователя: {} на событие: {} не передана",
+                            userId, eventId);
+                }
+            }
+        });
         return RequestMapper.toRequestDto(request);
     }
 
@@ -83,7 +103,11 @@ public class RequestServiceImpl implements RequestService {
         Request request = requestRepository.findByRequesterIdAndId(userId, requestId)
                 .orElseThrow(() -> new NotFoundException("У пользователя с id: " + userId +
                         " не найдено запроса с id: " + requestId));
+        boolean wasConfirmed = request.getStatus() == Status.CONFIRMED;
         request.setStatus(Status.CANCELED);
+        if (wasConfirmed) {
+            recordConfirmedRequestsChange(request.getEventId());
+        }
         return RequestMapper.toRequestDto(request);
     }
 
@@ -134,7 +158,7 @@ public class RequestServiceImpl implements RequestService {
         if (event.getParticipantLimit() == 0 || !event.getRequestModeration()) {
             throw new BadRequestException("Подтверждение заявок для данного события не требуется");
         }
-        int confirmedRequestsCount = requestRepository.findAllByStatusAndEventId(Status.CONFIRMED, eventId).size();
+        int confirmedRequestsCount = (int) requestRepository.countByStatusAndEventId(Status.CONFIRMED, eventId);
         if (Objects.equals(confirmedRequestsCount, event.getParticipantLimit())) {
             throw new ConflictDataException("Лимит участников уже исчерпан");
         }
@@ -170,6 +194,9 @@ public class RequestServiceImpl implements RequestService {
                 rejectedRequests.add(request);
             });
         }
+        if (!confirmedRequests.isEmpty()) {
+            recordConfirmedRequestsChange(eventId);
+        }
 
         return EventRequestStatusUpdateResult.builder()
                 .confirmedRequests(confirmedRequests.stream()
@@ -178,4 +205,15 @@ public class RequestServiceImpl implements RequestService {
                         .map(RequestMapper::toRequestDto).toList())
                 .build();
     }
+
+    /**
+     * Отклонение ожидающей заявки не меняет число подтвержденных, поэтому изменение записывается только
+     * при подтверждении и при отмене подтвержденной заявки. Вызывается после изменения статуса заявок:
+     * счетчик события получает новую версию и пересчитывается, а событие попадает в исходящую очередь
+     */
+    private void recordConfirmedRequestsChange(Long eventId) {
+        eventConfirmedRequestsRepository.incrementVersion(eventId);
+        eventConfirmedRequestsRepository.recount(eventId);
+        confirmedRequestsChangeRepository.save(ConfirmedRequestsChange.builder().eventId(eventId).build());
+    }
 }
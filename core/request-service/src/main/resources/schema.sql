@@ -5,4 +5,33 @@ CREATE TABLE IF NOT EXISTS participation_requests(
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     status VARCHAR(50) NOT NULL,
     CONSTRAINT UQ_PARTICIPANT_PER_EVENT UNIQUE (requester_id, event_id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS participation_requests_event_status_idx ON participation_requests(event_id, status);
+
+CREATE TABLE IF NOT EXISTS confirmed_requests_changes(
+    change_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_id BIGINT NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS event_confirmed_requests(
+    event_id BIGINT PRIMARY KEY,
+    confirmed_requests INT NOT NULL,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO event_confirmed_requests(event_id, confirmed_requests, version)
+SELECT event_id, count(*), 1
+FROM participation_requests
+WHERE status = 'CONFIRMED'
+GROUP BY event_id
+ON CONFLICT (event_id) DO NOTHING;
+
+-- При пустой очереди на старте число подтвержденных заявок всех событий отправляется заново: так заполняются
+-- счетчики в сервисе событий при первом запуске, и исправляются расхождения, если они возникли
+INSERT INTO confirmed_requests_changes(event_id, created)
+SELECT DISTINCT event_id, CURRENT_TIMESTAMP
+FROM participation_requests
+WHERE status = 'CONFIRMED'
+  AND NOT EXISTS (SELECT 1 FROM confirmed_requests_changes);
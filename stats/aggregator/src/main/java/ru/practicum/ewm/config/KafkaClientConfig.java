@@ -6,10 +6,15 @@ import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
+import java.util.Properties;
+
 @Configuration
 @RequiredArgsConstructor
 public class KafkaClientConfig {
@@ -17,10 +22,20 @@ public class KafkaClientConfig {
 
     @Bean
     public Producer<Long, SpecificRecordBase> getProducer() {
-        return new KafkaProducer<>(properties.getProducer());
+        if (!properties.getTransaction().getEnabled()) {
+            return new KafkaProducer<>(properties.getProducer());
+        }
+        Properties producerProperties = new Properties();
+        producerProperties.putAll(properties.getProducer());
+        producerProperties.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, properties.getTransaction().getId());
+        return new KafkaProducer<>(producerProperties);
     }
 
+    /**
+     * Каждый поток обработки получает собственный консьюмер: KafkaConsumer не потокобезопасен
+     */
     @Bean
+    @Scope(BeanDefinition.SCOPE_PROTOTYPE)
     public Consumer<Long, UserActionAvro> getConsumer() {
         return new KafkaConsumer<>(properties.getConsumer().getBase());
     }
@@ -14,6 +14,7 @@ import java.util.Properties;
 public class KafkaClientProperties {
     private Properties producer;
     private ConsumerProperties consumer;
+    private TransactionProperties transaction = new TransactionProperties();
 
     @ToString
     @Setter
@@ -21,5 +22,22 @@ public class KafkaClientProperties {
     public static class ConsumerProperties {
         private Properties base;
         private Long pollDurationSeconds;
+        /**
+         * Число потоков, каждый из которых читает свои партиции топика действий пользователей.
+         * При нескольких потоках записи о сходстве одной пары могут быть отправлены не в порядке расчета
+         */
+        private Integer workers = 1;
+    }
+
+    @ToString
+    @Setter
+    @Getter
+    public static class TransactionProperties {
+        private Boolean enabled = false;
+        private String id = "aggregator";
+        /**
+         * Число опросов консьюмера, результаты и офсеты которых фиксируются одной транзакцией
+         */
+        private Integer pollsPerTransaction = 10;
     }
 }
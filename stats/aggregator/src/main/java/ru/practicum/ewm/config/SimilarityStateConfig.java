@@ -0,0 +1,59 @@
+package ru.practicum.ewm.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.state.MappedSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+import ru.practicum.ewm.state.StripedSimilarityState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+@RequiredArgsConstructor
+public class SimilarityStateConfig {
+    private final SimilarityStateProperties properties;
+    private final KafkaClientProperties kafkaClientProperties;
+
+    @Bean
+    public SimilarityState getSimilarityState() throws IOException {
+        if (kafkaClientProperties.getConsumer().getWorkers() <= 1) {
+            return createState(getStateDirectory(), properties.getExpectedSize());
+        }
+        Path directory = getStateDirectory();
+        long stripeExpectedSize = properties.getExpectedSize() / properties.getStripes();
+        return new StripedSimilarityState(properties.getStripes(), stripe -> {
+            try {
+                Path stripeDirectory = directory == null
+                        ? null
+                        : Files.createDirectories(directory.resolve("stripe-" + stripe));
+                return createState(stripeDirectory, stripeExpectedSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private SimilarityState createState(Path directory, long expectedSize) {
+        return switch (properties.getType()) {
+            case HEAP -> new HeapSimilarityState();
+            case MAPPED -> new MappedSimilarityState(directory, expectedSize);
+        };
+    }
+
+    /**
+     * @return Каталог для файлов состояния или {@code null}, если состояние хранится в куче
+     */
+    private Path getStateDirectory() throws IOException {
+        return switch (properties.getType()) {
+            case HEAP -> null;
+            case MAPPED -> properties.getDirectory() != null
+                    ? Files.createDirectories(Path.of(properties.getDirectory()))
+                    : Files.createTempDirectory("aggregator-state");
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.state.StateType;
+
+@Setter
+@Getter
+@ToString
+@ConfigurationProperties("aggregator.state")
+public class SimilarityStateProperties {
+    private StateType type = StateType.HEAP;
+    private String directory;
+    private Long expectedSize = 1_000_000L;
+    /**
+     * Число полос разделяемого состояния при нескольких потоках обработки
+     */
+    private Integer stripes = 64;
+    private SnapshotProperties snapshot = new SnapshotProperties();
+
+    @ToString
+    @Setter
+    @Getter
+    public static class SnapshotProperties {
+        private Boolean enabled = false;
+        private String path = "aggregator-state/snapshot.bin";
+        private Long intervalSeconds = 60L;
+    }
+}
@@ -0,0 +1,279 @@
+package ru.practicum.ewm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import ru.practicum.ewm.config.KafkaClientProperties;
+import ru.practicum.ewm.snapshot.StateSnapshotter;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.constants.StatsTopics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Цикл обработки действий пользователей для одного потока. У каждого потока свой консьюмер в общей группе,
+ * поэтому партиции топика делятся между потоками. Продюсер и калькулятор с состоянием общие.
+ * <p>
+ * В режиме "как минимум один раз" офсеты фиксируются после каждого опроса отдельно от отправки записей.
+ * В транзакционном режиме записи и офсеты нескольких опросов фиксируются одной транзакцией Kafka,
+ * а блокировка обработки держится до конца транзакции, чтобы снимок состояния не попал в ее середину.
+ */
+@Slf4j
+public class AggregatorWorker implements Runnable, ConsumerRebalanceListener {
+    private final Consumer<Long, UserActionAvro> consumer;
+    private final Producer<Long, SpecificRecordBase> producer;
+    private final SimilarityCalculator similarityCalculator;
+    private final StateSnapshotter snapshotter;
+    private final Duration pollDuration;
+    private final boolean transactional;
+    private final int pollsPerTransaction;
+    private final Map<TopicPartition, OffsetAndMetadata> currentOffset = new HashMap<>();
+    private final Map<EventPair, EventSimilarityAvro> pendingSimilarities = new LinkedHashMap<>();
+    private final Counter emittedCounter;
+    private final Counter suppressedCounter;
+    private boolean inTransaction;
+    private int pollsInTransaction;
+
+    public AggregatorWorker(Consumer<Long, UserActionAvro> consumer, Producer<Long, SpecificRecordBase> producer,
+                            SimilarityCalculator similarityCalculator, StateSnapshotter snapshotter,
+                            Duration pollDuration, KafkaClientProperties.TransactionProperties transaction,
+                            MeterRegistry meterRegistry) {
+        this.consumer = consumer;
+        this.producer = producer;
+        this.similarityCalculator = similarityCalculator;
+        this.snapshotter = snapshotter;
+        this.pollDuration = pollDuration;
+        this.transactional = transaction.getEnabled();
+        this.pollsPerTransaction = transaction.getPollsPerTransaction();
+        this.emittedCounter = Counter.builder("aggregator.similarity.records")
+                .description("Записи о сходстве событий, отправленные в топик")
+                .tag("result", "emitted")
+                .register(meterRegistry);
+        this.suppressedCounter = Counter.builder("aggregator.similarity.records")
+                .description("Записи о сходстве событий, замененные более поздним расчетом той же пары в пределах опроса")
+                .tag("result", "suppressed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run() {
+        boolean failed = false;
+        try {
+            if (transactional) {
+                producer.initTransactions();
+            }
+            consumer.subscribe(List.of(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC), this);
+            while (true) {
+                ConsumerRecords<Long, UserActionAvro> records = consumer.poll(pollDuration);
+                if (transactional) {
+                    processInTransaction(records);
+                } else {
+                    processAndCommitAsync(records);
+                }
+            }
+        } catch (WakeupException ignored) {
+        } catch (Exception e) {
+            failed = true;
+            log.error("Ошибка во время обработки событий от датчиков", e);
+        } finally {
+            try {
+                if (transactional) {
+                    finishTransaction(!failed);
+                } else {
+                    producer.flush();
+                    consumer.commitSync(currentOffset);
+                }
+            } finally {
+                log.info("Закрываем консьюмер");
+                consumer.close();
+            }
+        }
+    }
+
+    public void wakeup() {
+        consumer.wakeup();
+    }
+
+    /**
+     * Перед передачей партиций другому потоку или экземпляру фиксирует обработанные по ним офсеты,
+     * чтобы новый владелец не применил те же действия повторно
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (transactional) {
+            if (inTransaction) {
+                commitTransaction();
+            }
+            partitions.forEach(currentOffset::remove);
+            log.info("Отозваны партиции {}", partitions);
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> revokedOffsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = currentOffset.remove(partition);
+            if (offset != null) {
+                revokedOffsets.put(partition, offset);
+            }
+        }
+        if (!revokedOffsets.isEmpty()) {
+            producer.flush();
+            consumer.commitSync(revokedOffsets);
+        }
+        log.info("Отозваны партиции {}", partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        log.info("Назначены партиции {}", partitions);
+        snapshotter.onPartitionsAssigned(consumer, partitions);
+    }
+
+    private void processAndCommitAsync(ConsumerRecords<Long, UserActionAvro> records) {
+        Lock processingLock = snapshotter.getProcessingLock();
+        processingLock.lock();
+        try {
+            process(records);
+            snapshotter.markProcessed(currentOffset);
+        } finally {
+            processingLock.unlock();
+        }
+        consumer.commitAsync((offsets, exception) -> {
+            if (exception != null) {
+                log.warn("Во время фиксации произошла ошибка. Офсет: {}. Топик: {}", offsets,
+                        StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, exception);
+            }
+        });
+    }
+
+    /**
+     * Транзакция открывается на первой непустой пачке и фиксируется после {@code pollsPerTransaction} опросов
+     * или на первом пустом опросе, чтобы при слабом потоке записи не задерживались
+     */
+    private void processInTransaction(ConsumerRecords<Long, UserActionAvro> records) {
+        if (records.isEmpty()) {
+            if (inTransaction) {
+                commitTransaction();
+            }
+            return;
+        }
+        if (!inTransaction) {
+            beginTransaction();
+        }
+        process(records);
+        if (++pollsInTransaction >= pollsPerTransaction) {
+            commitTransaction();
+        }
+    }
+
+    private void process(ConsumerRecords<Long, UserActionAvro> records) {
+        int calculated = 0;
+        for (ConsumerRecord<Long, UserActionAvro> record : records) {
+            for (EventSimilarityAvro similarity : similarityCalculator.calculate(record.value())) {
+                pendingSimilarities.put(new EventPair(similarity.getEventA(), similarity.getEventB()), similarity);
+                calculated++;
+            }
+            currentOffset.put(
+                    new TopicPartition(record.topic(), record.partition()),
+                    new OffsetAndMetadata(record.offset() + 1)
+            );
+        }
+        sendPendingSimilarities(calculated);
+    }
+
+    private void beginTransaction() {
+        snapshotter.getProcessingLock().lock();
+        try {
+            producer.beginTransaction();
+        } catch (RuntimeException e) {
+            snapshotter.getProcessingLock().unlock();
+            throw e;
+        }
+        inTransaction = true;
+        pollsInTransaction = 0;
+    }
+
+    private void commitTransaction() {
+        try {
+            producer.sendOffsetsToTransaction(new HashMap<>(currentOffset), consumer.groupMetadata());
+            producer.commitTransaction();
+            snapshotter.markProcessed(currentOffset);
+        } catch (KafkaException e) {
+            abortTransaction();
+            throw e;
+        }
+        inTransaction = false;
+        snapshotter.getProcessingLock().unlock();
+    }
+
+    /**
+     * Изменения прерванной транзакции уже применены к состоянию в памяти и не могут быть отменены,
+     * поэтому состояние больше не соответствует зафиксированным офсетам. Снимки после этого не сохраняются,
+     * а при перезапуске состояние восстанавливается из последнего согласованного снимка.
+     */
+    private void abortTransaction() {
+        try {
+            producer.abortTransaction();
+        } catch (KafkaException e) {
+            log.warn("Не удалось прервать транзакцию", e);
+        } finally {
+            inTransaction = false;
+            snapshotter.invalidate();
+            snapshotter.getProcessingLock().unlock();
+            log.error("Транзакция прервана, состояние расходится с зафиксированными офсетами. Требуется перезапуск");
+        }
+    }
+
+    private void finishTransaction(boolean commit) {
+        if (!inTransaction) {
+            return;
+        }
+        if (commit) {
+            commitTransaction();
+        } else {
+            abortTransaction();
+        }
+    }
+
+    /**
+     * Отправляет по одной записи на пару событий: коэффициент подобия - абсолютное значение,
+     * поэтому из нескольких расчетов пары за опрос достаточно последнего
+     */
+    private void sendPendingSimilarities(int calculated) {
+        pendingSimilarities.values().forEach(this::send);
+        emittedCounter.increment(pendingSimilarities.size());
+        suppressedCounter.increment(calculated - pendingSimilarities.size());
+        log.debug("Рассчитано записей о сходстве: {}, отправлено: {}", calculated, pendingSimilarities.size());
+        pendingSimilarities.clear();
+    }
+
+    private void send(EventSimilarityAvro eventSimilarityAvro) {
+        Long id = eventSimilarityAvro.getEventA();
+        Long timestamp = eventSimilarityAvro.getTimestamp().toEpochMilli();
+        String topic = StatsTopics.STATS_EVENT_SIMILARITY_V1_TOPIC;
+        ProducerRecord<Long, SpecificRecordBase> producerRecord =
+                new ProducerRecord<>(topic, null, timestamp, id, eventSimilarityAvro);
+        log.debug("Сохраняю запись {}, в топик {}", eventSimilarityAvro, topic);
+        producer.send(producerRecord);
+    }
+
+    private record EventPair(long eventA, long eventB) {
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.ewm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.state.SimilarityState;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пересчитывает коэффициенты подобия событий по действию пользователя и обновляет состояние.
+ * Может вызываться из нескольких потоков, если хранилище потокобезопасно и действия одного пользователя
+ * обрабатываются одним потоком.
+ * <p>
+ * Действия одной пары событий приходят от разных пользователей, то есть из разных партиций, и обрабатываются
+ * не в порядке их дат. Поэтому запись о сходстве помечается не датой действия, а наибольшей из увиденных дат,
+ * которая выдается под блокировкой пары: порядок меток пары совпадает с порядком расчетов. Анализатор оставляет
+ * запись с самой поздней меткой, а при равных - последнюю по офсету. Отсчет меток начинается с времени запуска,
+ * поэтому расчеты после перезапуска не уступают записям, отправленным до него.
+ * <p>
+ * Ограничение нескольких потоков: записи пары с равными метками отправляются после опроса и могут попасть
+ * в топик не в порядке расчета, тогда до следующего изменения пары остается более ранний расчет.
+ * Поэтому по умолчанию поток один.
+ */
+@Component
+@RequiredArgsConstructor
+public class SimilarityCalculator {
+    private final SimilarityState state;
+    private final AtomicLong maxTimestamp = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Расчитывает коэффиценты подобия события из действия с остальными событиями пользователя.
+     * Новое событие обрабатывается так же, как существующее, у которого вес действия пользователя был равен нулю.
+     * Обходятся только события, с которыми взаимодействовал пользователь: в остальных парах его вклад нулевой,
+     * сумма минимальных весов не меняется, и пустые записи для них не создаются.
+     *
+     * @param userActionAvro Запись c событием UserActionAvro
+     * @return Пустой лист - если переданное событие никак не повлияло на коэффициент подобия с другими событиями.
+     * В обратном случае возвращается лист обьектов {@code EventSimilarityAvro} в которых id событий упорядочены по возрастанию.
+     */
+    public List<EventSimilarityAvro> calculate(UserActionAvro userActionAvro) {
+        long eventA = userActionAvro.getEventId();
+        long userId = userActionAvro.getUserId();
+        long actionTimestamp = userActionAvro.getTimestamp().toEpochMilli();
+        double oldWeight = state.getWeight(eventA, userId);
+        double newWeight = getWeightByAction(userActionAvro);
+        if (oldWeight >= newWeight) {
+            return List.of();
+        }
+        state.putWeight(eventA, userId, newWeight);
+        state.addWeightSum(eventA, newWeight - oldWeight);
+        List<EventSimilarityAvro> similarityAvroList = new ArrayList<>();
+        state.forEachEventOfUser(userId, (eventB, eventBUserWeight) -> {
+            if (eventA == eventB) return;
+            long first = Math.min(eventA, eventB);
+            long second = Math.max(eventA, eventB);
+            double delta = Math.min(newWeight, eventBUserWeight) - Math.min(oldWeight, eventBUserWeight);
+            long[] timestamp = new long[1];
+            // Суммы пары и обоих событий читаются вместе, чтобы не смешать значения до и после действий
+            // из других потоков
+            double score = state.computeForPair(first, second, () -> {
+                timestamp[0] = maxTimestamp.accumulateAndGet(actionTimestamp, Math::max);
+                double minWeightsSum = delta == 0.0
+                        ? state.getMinWeightsSum(first, second)
+                        : state.addMinWeightsSum(first, second, delta);
+                return minWeightsSum / (Math.sqrt(state.getWeightSum(first)) * Math.sqrt(state.getWeightSum(second)));
+            });
+            similarityAvroList.add(EventSimilarityAvro.newBuilder()
+                    .setEventA(first)
+                    .setEventB(second)
+                    .setScore(score)
+                    .setTimestamp(Instant.ofEpochMilli(timestamp[0]))
+                    .build());
+        });
+        return similarityAvroList;
+    }
+
+    private double getWeightByAction(UserActionAvro userActionAvro) {
+        return switch (userActionAvro.getActionType()) {
+            case VIEW -> 0.4;
+            case REGISTER -> 0.8;
+            case LIKE -> 1;
+        };
+    }
+}
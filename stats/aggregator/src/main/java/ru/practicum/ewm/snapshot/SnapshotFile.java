@@ -0,0 +1,107 @@
+package ru.practicum.ewm.snapshot;
+
+import lombok.experimental.UtilityClass;
+import org.apache.kafka.common.TopicPartition;
+import ru.practicum.ewm.state.SimilarityState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Формат файла снимка состояния агрегатора: заголовок, офсеты партиций, до которых учтены действия,
+ * и три секции записей (веса действий, суммы весов событий, суммы минимальных весов пар).
+ * Каждая запись предваряется флагом {@code true}, секция завершается флагом {@code false}.
+ * Формат не зависит от реализации хранилища, поэтому снимок можно загрузить в хранилище другого типа.
+ */
+@UtilityClass
+public class SnapshotFile {
+    private static final int MAGIC = 0x53494D53;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Записывает снимок во временный файл и атомарно подменяет им предыдущий,
+     * поэтому при сбое во время записи остается последний целый снимок
+     */
+    public void write(Path file, SimilarityState state, Map<TopicPartition, Long> offsets) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(offsets.size());
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                out.writeUTF(entry.getKey().topic());
+                out.writeInt(entry.getKey().partition());
+                out.writeLong(entry.getValue());
+            }
+            try {
+                state.forEachWeight((eventId, userId, weight) -> writeEntry(out, eventId, userId, weight));
+                out.writeBoolean(false);
+                state.forEachWeightSum((eventId, weightSum) -> writeEntry(out, eventId, 0, weightSum));
+                out.writeBoolean(false);
+                state.forEachMinWeightsSum((first, second, sum) -> writeEntry(out, first, second, sum));
+                out.writeBoolean(false);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Загружает снимок в пустое хранилище
+     *
+     * @return Офсеты партиций, до которых действия учтены в снимке
+     */
+    public Map<TopicPartition, Long> read(Path file, SimilarityState state) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка состояния " + file);
+            }
+            int partitions = in.readInt();
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(new TopicPartition(in.readUTF(), in.readInt()), in.readLong());
+            }
+            while (in.readBoolean()) {
+                state.putWeight(in.readLong(), in.readLong(), in.readDouble());
+            }
+            while (in.readBoolean()) {
+                long eventId = in.readLong();
+                in.readLong();
+                state.addWeightSum(eventId, in.readDouble());
+            }
+            while (in.readBoolean()) {
+                state.addMinWeightsSum(in.readLong(), in.readLong(), in.readDouble());
+            }
+            return offsets;
+        }
+    }
+
+    private void writeEntry(DataOutputStream out, long first, long second, double value) {
+        try {
+            out.writeBoolean(true);
+            out.writeLong(first);
+            out.writeLong(second);
+            out.writeDouble(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
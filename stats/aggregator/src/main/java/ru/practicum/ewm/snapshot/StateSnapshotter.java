@@ -0,0 +1,171 @@
+package ru.practicum.ewm.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.SimilarityStateProperties;
+import ru.practicum.ewm.state.SimilarityState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Периодически сохраняет состояние агрегатора вместе с офсетами, до которых в нем учтены действия.
+ * Потоки обработки держат блокировку чтения на время обработки пачки записей, снимок берет блокировку записи,
+ * поэтому состояние и офсеты в снимке согласованы.
+ * <p>
+ * При старте состояние загружается из снимка, а партиции при первом назначении переводятся на офсеты снимка:
+ * повторно читается только хвост топика. Партиции, которых нет в снимке, читаются с начала.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StateSnapshotter implements DisposableBean {
+    private final SimilarityState state;
+    private final Producer<Long, SpecificRecordBase> producer;
+    private final SimilarityStateProperties properties;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<TopicPartition, Long> processedOffsets = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> positionedPartitions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean invalidated;
+
+    public void restore() {
+        if (!isEnabled()) {
+            return;
+        }
+        Path file = getFile();
+        if (!Files.exists(file)) {
+            log.info("Снимок состояния {} не найден, состояние будет восстановлено из топика с начала", file);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            processedOffsets.putAll(SnapshotFile.read(file, state));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить снимок состояния " + file, e);
+        }
+        log.info("Состояние загружено из снимка {} за {} мс. Офсеты: {}", file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), processedOffsets);
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        long interval = properties.getSnapshot().getIntervalSeconds();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "state-snapshotter"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (Exception e) {
+                log.error("Не удалось сохранить снимок состояния", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Блокировка, которую поток обработки держит, пока применяет пачку записей к состоянию
+     */
+    public Lock getProcessingLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Запоминает офсеты, до которых действия учтены в состоянии. Вызывается под блокировкой обработки
+     */
+    public void markProcessed(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (!isEnabled()) {
+            return;
+        }
+        offsets.forEach((partition, offset) -> processedOffsets.put(partition, offset.offset()));
+    }
+
+    /**
+     * Переводит впервые назначенные экземпляру партиции на офсеты, соответствующие состоянию.
+     * При повторном назначении партиции состояние уже актуально, и чтение продолжается с зафиксированного офсета.
+     */
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (TopicPartition partition : partitions) {
+            if (!positionedPartitions.add(partition)) {
+                continue;
+            }
+            Long offset = processedOffsets.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+            log.info("Партиция {} переведена на офсет {}", partition, offset != null ? offset : "начала");
+        }
+    }
+
+    /**
+     * Запрещает дальнейшие снимки: состояние в памяти разошлось с обработанными офсетами
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    public void snapshot() throws IOException {
+        Path file = getFile();
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (invalidated) {
+                log.warn("Состояние не согласовано с офсетами, снимок не сохраняется");
+                return;
+            }
+            // Записи, рассчитанные до снимка, не будут отправлены повторно после восстановления
+            producer.flush();
+            SnapshotFile.write(file, state, new HashMap<>(processedOffsets));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Снимок состояния сохранен в {} за {} мс", file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Сохраняет последний снимок при остановке. Бин уничтожается раньше хранилища состояния, от которого зависит
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot();
+    }
+
+    private boolean isEnabled() {
+        return properties.getSnapshot().getEnabled();
+    }
+
+    private Path getFile() {
+        return Path.of(properties.getSnapshot().getPath());
+    }
+}
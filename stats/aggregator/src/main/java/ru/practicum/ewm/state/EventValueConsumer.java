@@ -0,0 +1,6 @@
+package ru.practicum.ewm.state;
+
+@FunctionalInterface
+public interface EventValueConsumer {
+    void accept(long eventId, double value);
+}
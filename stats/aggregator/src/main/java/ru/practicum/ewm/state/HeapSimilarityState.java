@@ -0,0 +1,102 @@
+package ru.practicum.ewm.state;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleMaps;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * Состояние в куче на примитивных коллекциях fastutil: ключи и значения хранятся без упаковки в Long/Double.
+ * Веса действий сгруппированы по пользователю, поэтому события пользователя обходятся без просмотра всего каталога.
+ */
+public class HeapSimilarityState implements SimilarityState {
+    private final Long2ObjectOpenHashMap<Long2DoubleOpenHashMap> userEventWeights = new Long2ObjectOpenHashMap<>();
+    private final Long2DoubleOpenHashMap weightSums = new Long2DoubleOpenHashMap();
+    private final Long2ObjectOpenHashMap<Long2DoubleOpenHashMap> minWeightsSums = new Long2ObjectOpenHashMap<>();
+
+    @Override
+    public double getWeight(long eventId, long userId) {
+        Long2DoubleOpenHashMap eventsWeight = userEventWeights.get(userId);
+        return eventsWeight == null ? 0.0 : eventsWeight.get(eventId);
+    }
+
+    @Override
+    public void putWeight(long eventId, long userId, double weight) {
+        getOrCreate(userEventWeights, userId).put(eventId, weight);
+    }
+
+    @Override
+    public double getWeightSum(long eventId) {
+        return weightSums.get(eventId);
+    }
+
+    @Override
+    public double addWeightSum(long eventId, double delta) {
+        return weightSums.addTo(eventId, delta) + delta;
+    }
+
+    @Override
+    public void forEachEventOfUser(long userId, EventValueConsumer consumer) {
+        Long2DoubleOpenHashMap eventsWeight = userEventWeights.get(userId);
+        if (eventsWeight == null) {
+            return;
+        }
+        for (Long2DoubleMap.Entry entry : Long2DoubleMaps.fastIterable(eventsWeight)) {
+            consumer.accept(entry.getLongKey(), entry.getDoubleValue());
+        }
+    }
+
+    @Override
+    public double getMinWeightsSum(long first, long second) {
+        Long2DoubleOpenHashMap sums = minWeightsSums.get(first);
+        return sums == null ? 0.0 : sums.get(second);
+    }
+
+    @Override
+    public double addMinWeightsSum(long first, long second, double delta) {
+        return getOrCreate(minWeightsSums, first).addTo(second, delta) + delta;
+    }
+
+    @Override
+    public void forEachWeight(PairValueConsumer consumer) {
+        for (Long2ObjectMap.Entry<Long2DoubleOpenHashMap> user : Long2ObjectMaps.fastIterable(userEventWeights)) {
+            for (Long2DoubleMap.Entry event : Long2DoubleMaps.fastIterable(user.getValue())) {
+                consumer.accept(event.getLongKey(), user.getLongKey(), event.getDoubleValue());
+            }
+        }
+    }
+
+    @Override
+    public void forEachWeightSum(EventValueConsumer consumer) {
+        for (Long2DoubleMap.Entry entry : Long2DoubleMaps.fastIterable(weightSums)) {
+            consumer.accept(entry.getLongKey(), entry.getDoubleValue());
+        }
+    }
+
+    @Override
+    public void forEachMinWeightsSum(PairValueConsumer consumer) {
+        for (Long2ObjectMap.Entry<Long2DoubleOpenHashMap> first : Long2ObjectMaps.fastIterable(minWeightsSums)) {
+            for (Long2DoubleMap.Entry second : Long2DoubleMaps.fastIterable(first.getValue())) {
+                consumer.accept(first.getLongKey(), second.getLongKey(), second.getDoubleValue());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        userEventWeights.clear();
+        weightSums.clear();
+        minWeightsSums.clear();
+    }
+
+    private Long2DoubleOpenHashMap getOrCreate(Long2ObjectOpenHashMap<Long2DoubleOpenHashMap> map, long key) {
+        Long2DoubleOpenHashMap inner = map.get(key);
+        if (inner == null) {
+            inner = new Long2DoubleOpenHashMap();
+            map.put(key, inner);
+        }
+        return inner;
+    }
+}
@@ -0,0 +1,216 @@
+package ru.practicum.ewm.state;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Хеш-таблица (long, long) -> double с открытой адресацией, размещенная вне кучи в отображаемых в память файлах.
+ * Слот занимает 24 байта: два ключа и значение. Пустым считается слот с нулевыми ключами,
+ * поэтому пара (0, 0) хранится отдельно. Таблица не потокобезопасна.
+ */
+class MappedPairTable implements Closeable {
+    private static final int SLOT_SIZE = 24;
+    private static final int SEGMENT_SHIFT = 22; // 4М слотов, 96 МБ на сегмент
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final long MIN_CAPACITY = 1024;
+
+    private final Path directory;
+    private final String name;
+    private int generation;
+    private Path file;
+    private ByteBuffer[] segments;
+    private long capacity;
+    private long mask;
+    private long maxFill;
+    private long size;
+    private boolean containsZeroKey;
+    private double zeroKeyValue;
+
+    MappedPairTable(Path directory, String name, long expectedSize) {
+        this.directory = directory;
+        this.name = name;
+        allocate(HashCommon.bigArraySize(Math.max(expectedSize, MIN_CAPACITY), (float) LOAD_FACTOR));
+    }
+
+    double get(long first, long second) {
+        if (first == 0 && second == 0) {
+            return containsZeroKey ? zeroKeyValue : 0.0;
+        }
+        long slot = findSlot(first, second);
+        return isFree(slot) ? 0.0 : getValue(slot);
+    }
+
+    /**
+     * @return Предыдущее значение, связанное с парой ключей, или {@code 0.0}, если пары не было
+     */
+    double put(long first, long second, double value) {
+        if (first == 0 && second == 0) {
+            double previous = containsZeroKey ? zeroKeyValue : 0.0;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+            }
+            zeroKeyValue = value;
+            return previous;
+        }
+        long slot = findSlot(first, second);
+        if (isFree(slot)) {
+            insert(slot, first, second, value);
+            return 0.0;
+        }
+        double previous = getValue(slot);
+        setValue(slot, value);
+        return previous;
+    }
+
+    /**
+     * @return Новое значение, связанное с парой ключей
+     */
+    double addTo(long first, long second, double delta) {
+        if (first == 0 && second == 0) {
+            put(0, 0, zeroKeyValue + delta);
+            return zeroKeyValue;
+        }
+        long slot = findSlot(first, second);
+        if (isFree(slot)) {
+            insert(slot, first, second, delta);
+            return delta;
+        }
+        double value = getValue(slot) + delta;
+        setValue(slot, value);
+        return value;
+    }
+
+    void forEach(PairValueConsumer consumer) {
+        if (containsZeroKey) {
+            consumer.accept(0, 0, zeroKeyValue);
+        }
+        for (long slot = 0; slot < capacity; slot++) {
+            ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+            long first = segment.getLong(offset);
+            long second = segment.getLong(offset + 8);
+            if (first != 0 || second != 0) {
+                consumer.accept(first, second, segment.getDouble(offset + 16));
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Размер занятой таблицей памяти вне кучи в байтах
+     */
+    long mappedBytes() {
+        return capacity * SLOT_SIZE;
+    }
+
+    @Override
+    public void close() {
+        segments = null;
+        deleteFile(file);
+    }
+
+    private void insert(long slot, long first, long second, double value) {
+        ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+        int offset = (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+        segment.putLong(offset, first);
+        segment.putLong(offset + 8, second);
+        segment.putDouble(offset + 16, value);
+        if (++size >= maxFill) {
+            rehash(capacity * 2);
+        }
+    }
+
+    private long findSlot(long first, long second) {
+        long slot = HashCommon.mix(HashCommon.mix(first) ^ second) & mask;
+        while (true) {
+            ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+            long storedFirst = segment.getLong(offset);
+            long storedSecond = segment.getLong(offset + 8);
+            if ((storedFirst == 0 && storedSecond == 0) || (storedFirst == first && storedSecond == second)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean isFree(long slot) {
+        ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+        int offset = (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+        return segment.getLong(offset) == 0 && segment.getLong(offset + 8) == 0;
+    }
+
+    private double getValue(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)].getDouble((int) (slot & SEGMENT_MASK) * SLOT_SIZE + 16);
+    }
+
+    private void setValue(long slot, double value) {
+        segments[(int) (slot >>> SEGMENT_SHIFT)].putDouble((int) (slot & SEGMENT_MASK) * SLOT_SIZE + 16, value);
+    }
+
+    private void rehash(long newCapacity) {
+        ByteBuffer[] oldSegments = segments;
+        long oldCapacity = capacity;
+        Path oldFile = file;
+        allocate(newCapacity);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            ByteBuffer segment = oldSegments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) * SLOT_SIZE;
+            long first = segment.getLong(offset);
+            long second = segment.getLong(offset + 8);
+            if (first != 0 || second != 0) {
+                long newSlot = findSlot(first, second);
+                ByteBuffer newSegment = segments[(int) (newSlot >>> SEGMENT_SHIFT)];
+                int newOffset = (int) (newSlot & SEGMENT_MASK) * SLOT_SIZE;
+                newSegment.putLong(newOffset, first);
+                newSegment.putLong(newOffset + 8, second);
+                newSegment.putDouble(newOffset + 16, segment.getDouble(offset + 16));
+            }
+        }
+        deleteFile(oldFile);
+    }
+
+    private void allocate(long newCapacity) {
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        maxFill = (long) Math.ceil(newCapacity * LOAD_FACTOR);
+        file = directory.resolve(name + "-" + generation++ + ".tbl");
+        int segmentCount = (int) ((newCapacity + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        ByteBuffer[] newSegments = new ByteBuffer[segmentCount];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < segmentCount; i++) {
+                long slots = Math.min(newCapacity - ((long) i << SEGMENT_SHIFT), SEGMENT_MASK + 1);
+                newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                ((long) i << SEGMENT_SHIFT) * SLOT_SIZE, slots * SLOT_SIZE)
+                        .order(ByteOrder.nativeOrder());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось отобразить в память файл " + file, e);
+        }
+        segments = newSegments;
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            // Отображение остается валидным до сборки буфера, на Linux файл можно удалить сразу
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить файл " + path, e);
+        }
+    }
+}
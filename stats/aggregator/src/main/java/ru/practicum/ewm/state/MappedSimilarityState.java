@@ -0,0 +1,115 @@
+package ru.practicum.ewm.state;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleMaps;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.nio.file.Path;
+
+/**
+ * Состояние, в котором самые объемные данные (веса действий и суммы минимальных весов пар событий)
+ * вынесены из кучи в отображаемые в память файлы. Суммы весов событий и индекс событий пользователя
+ * остаются в куче: индекс хранит только id событий, сами веса читаются из таблицы.
+ */
+public class MappedSimilarityState implements SimilarityState {
+    private final MappedPairTable userActionWeights;
+    private final Long2ObjectOpenHashMap<LongArrayList> userEvents = new Long2ObjectOpenHashMap<>();
+    private final Long2DoubleOpenHashMap weightSums = new Long2DoubleOpenHashMap();
+    private final MappedPairTable minWeightsSums;
+
+    public MappedSimilarityState(Path directory, long expectedSize) {
+        this.userActionWeights = new MappedPairTable(directory, "user-action-weights", expectedSize);
+        this.minWeightsSums = new MappedPairTable(directory, "min-weights-sums", expectedSize);
+    }
+
+    @Override
+    public double getWeight(long eventId, long userId) {
+        return userActionWeights.get(eventId, userId);
+    }
+
+    @Override
+    public void putWeight(long eventId, long userId, double weight) {
+        if (userActionWeights.put(eventId, userId, weight) == 0.0) {
+            LongArrayList events = userEvents.get(userId);
+            if (events == null) {
+                events = new LongArrayList();
+                userEvents.put(userId, events);
+            }
+            events.add(eventId);
+        }
+    }
+
+    @Override
+    public double getWeightSum(long eventId) {
+        return weightSums.get(eventId);
+    }
+
+    @Override
+    public double addWeightSum(long eventId, double delta) {
+        return weightSums.addTo(eventId, delta) + delta;
+    }
+
+    @Override
+    public void forEachEventOfUser(long userId, EventValueConsumer consumer) {
+        LongArrayList events = userEvents.get(userId);
+        if (events == null) {
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            long eventId = events.getLong(i);
+            consumer.accept(eventId, userActionWeights.get(eventId, userId));
+        }
+    }
+
+    @Override
+    public double getMinWeightsSum(long first, long second) {
+        return minWeightsSums.get(first, second);
+    }
+
+    @Override
+    public double addMinWeightsSum(long first, long second, double delta) {
+        return minWeightsSums.addTo(first, second, delta);
+    }
+
+    @Override
+    public void forEachWeight(PairValueConsumer consumer) {
+        for (Long2ObjectMap.Entry<LongArrayList> user : Long2ObjectMaps.fastIterable(userEvents)) {
+            long userId = user.getLongKey();
+            LongArrayList events = user.getValue();
+            for (int i = 0; i < events.size(); i++) {
+                long eventId = events.getLong(i);
+                consumer.accept(eventId, userId, userActionWeights.get(eventId, userId));
+            }
+        }
+    }
+
+    @Override
+    public void forEachWeightSum(EventValueConsumer consumer) {
+        for (Long2DoubleMap.Entry entry : Long2DoubleMaps.fastIterable(weightSums)) {
+            consumer.accept(entry.getLongKey(), entry.getDoubleValue());
+        }
+    }
+
+    @Override
+    public void forEachMinWeightsSum(PairValueConsumer consumer) {
+        minWeightsSums.forEach(consumer);
+    }
+
+    /**
+     * Размер занятой состоянием памяти вне кучи в байтах
+     */
+    public long mappedBytes() {
+        return userActionWeights.mappedBytes() + minWeightsSums.mappedBytes();
+    }
+
+    @Override
+    public void close() {
+        userActionWeights.close();
+        userEvents.clear();
+        minWeightsSums.close();
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.ewm.state;
+
+@FunctionalInterface
+public interface PairValueConsumer {
+    void accept(long first, long second, double value);
+}
@@ -0,0 +1,78 @@
+package ru.practicum.ewm.state;
+
+import java.io.Closeable;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Хранилище состояния для расчета косинусного сходства событий.
+ * Содержит максимальные веса действий пользователей, суммы весов событий и суммы минимальных весов пар событий.
+ * Отсутствующие значения трактуются как {@code 0.0}. Реализации не потокобезопасны.
+ */
+public interface SimilarityState extends Closeable {
+
+    double getWeight(long eventId, long userId);
+
+    void putWeight(long eventId, long userId, double weight);
+
+    double getWeightSum(long eventId);
+
+    /**
+     * Увеличивает сумму весов события на {@code delta}
+     *
+     * @return Новое значение суммы весов
+     */
+    double addWeightSum(long eventId, double delta);
+
+    /**
+     * Обходит только те события, с которыми взаимодействовал пользователь
+     *
+     * @param consumer Получает id события и вес действия пользователя с ним
+     */
+    void forEachEventOfUser(long userId, EventValueConsumer consumer);
+
+    /**
+     * @param first  Меньший из id пары событий
+     * @param second Больший из id пары событий
+     */
+    double getMinWeightsSum(long first, long second);
+
+    /**
+     * Увеличивает сумму минимальных весов пары событий на {@code delta}
+     *
+     * @param first  Меньший из id пары событий
+     * @param second Больший из id пары событий
+     * @return Новое значение суммы минимальных весов
+     */
+    double addMinWeightsSum(long first, long second, double delta);
+
+    /**
+     * Выполняет расчет по паре событий так, что расчеты одной пары из разных потоков не пересекаются.
+     * Непотокобезопасным реализациям блокировка не нужна
+     *
+     * @param first  Меньший из id пары событий
+     * @param second Больший из id пары событий
+     */
+    default double computeForPair(long first, long second, DoubleSupplier computation) {
+        return computation.getAsDouble();
+    }
+
+    /**
+     * Обходит все веса действий. Предназначен для снимков состояния
+     *
+     * @param consumer Получает id события, id пользователя и вес
+     */
+    void forEachWeight(PairValueConsumer consumer);
+
+    /**
+     * Обходит все суммы весов событий. Предназначен для снимков состояния
+     */
+    void forEachWeightSum(EventValueConsumer consumer);
+
+    /**
+     * Обходит все суммы минимальных весов пар событий. Предназначен для снимков состояния
+     */
+    void forEachMinWeightsSum(PairValueConsumer consumer);
+
+    @Override
+    void close();
+}
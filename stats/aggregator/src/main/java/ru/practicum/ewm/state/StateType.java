@@ -0,0 +1,5 @@
+package ru.practicum.ewm.state;
+
+public enum StateType {
+    HEAP, MAPPED
+}
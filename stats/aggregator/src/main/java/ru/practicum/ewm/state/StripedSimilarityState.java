@@ -0,0 +1,204 @@
+package ru.practicum.ewm.state;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntFunction;
+
+/**
+ * Потокобезопасное состояние, разбитое на полосы. Каждая полоса - отдельное непотокобезопасное хранилище
+ * под своей блокировкой. Веса действий распределяются по id пользователя, суммы весов - по id события,
+ * суммы минимальных весов - по паре событий, поэтому каждый вызов блокирует только одну полосу.
+ * <p>
+ * Операции атомарны по отдельности. Последовательность "прочитать вес - записать вес" для одного пользователя
+ * не атомарна: ее безопасность обеспечивается тем, что действия пользователя обрабатывает один поток.
+ * <p>
+ * Расчет сходства пары выполняется под отдельной блокировкой пары, {@link #computeForPair}. Блокировки пар всегда
+ * внешние, а блокировки полос не вкладываются друг в друга, поэтому взаимная блокировка потоков невозможна.
+ */
+public class StripedSimilarityState implements SimilarityState {
+    private final SimilarityState[] stripes;
+    private final ReentrantLock[] locks;
+    private final ReentrantLock[] pairLocks;
+    private final int mask;
+
+    /**
+     * @param stripeCount   Желаемое число полос, округляется вверх до степени двойки
+     * @param stripeFactory Создает хранилище для полосы по ее номеру
+     */
+    public StripedSimilarityState(int stripeCount, IntFunction<SimilarityState> stripeFactory) {
+        int count = HashCommon.nextPowerOfTwo(Math.max(stripeCount, 1));
+        this.stripes = new SimilarityState[count];
+        this.locks = new ReentrantLock[count];
+        this.pairLocks = new ReentrantLock[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = stripeFactory.apply(i);
+            locks[i] = new ReentrantLock();
+            pairLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public double getWeight(long eventId, long userId) {
+        int stripe = stripe(userId);
+        locks[stripe].lock();
+        try {
+            return stripes[stripe].getWeight(eventId, userId);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public void putWeight(long eventId, long userId, double weight) {
+        int stripe = stripe(userId);
+        locks[stripe].lock();
+        try {
+            stripes[stripe].putWeight(eventId, userId, weight);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public double getWeightSum(long eventId) {
+        int stripe = stripe(eventId);
+        locks[stripe].lock();
+        try {
+            return stripes[stripe].getWeightSum(eventId);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public double addWeightSum(long eventId, double delta) {
+        int stripe = stripe(eventId);
+        locks[stripe].lock();
+        try {
+            return stripes[stripe].addWeightSum(eventId, delta);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    /**
+     * События пользователя копируются под блокировкой, а обработчик вызывается уже после ее снятия:
+     * обработчик обращается к другим полосам, и вложенные блокировки могли бы привести к взаимной блокировке потоков.
+     */
+    @Override
+    public void forEachEventOfUser(long userId, EventValueConsumer consumer) {
+        LongArrayList events = new LongArrayList();
+        DoubleArrayList weights = new DoubleArrayList();
+        int stripe = stripe(userId);
+        locks[stripe].lock();
+        try {
+            stripes[stripe].forEachEventOfUser(userId, (eventId, weight) -> {
+                events.add(eventId);
+                weights.add(weight);
+            });
+        } finally {
+            locks[stripe].unlock();
+        }
+        for (int i = 0; i < events.size(); i++) {
+            consumer.accept(events.getLong(i), weights.getDouble(i));
+        }
+    }
+
+    @Override
+    public double getMinWeightsSum(long first, long second) {
+        int stripe = stripe(first, second);
+        locks[stripe].lock();
+        try {
+            return stripes[stripe].getMinWeightsSum(first, second);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public double addMinWeightsSum(long first, long second, double delta) {
+        int stripe = stripe(first, second);
+        locks[stripe].lock();
+        try {
+            return stripes[stripe].addMinWeightsSum(first, second, delta);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    /**
+     * Расчеты одной пары выполняются по очереди: последний из них видит изменения сумм весов, сделанные
+     * всеми потоками до своего расчета этой пары
+     */
+    @Override
+    public double computeForPair(long first, long second, DoubleSupplier computation) {
+        ReentrantLock pairLock = pairLocks[stripe(first, second)];
+        pairLock.lock();
+        try {
+            return computation.getAsDouble();
+        } finally {
+            pairLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachWeight(PairValueConsumer consumer) {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].forEachWeight(consumer);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void forEachWeightSum(EventValueConsumer consumer) {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].forEachWeightSum(consumer);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void forEachMinWeightsSum(PairValueConsumer consumer) {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].forEachMinWeightsSum(consumer);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].lock();
+            try {
+                stripes[i].close();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private int stripe(long key) {
+        return (int) HashCommon.mix(key) & mask;
+    }
+
+    private int stripe(long first, long second) {
+        return (int) HashCommon.mix(HashCommon.mix(first) ^ second) & mask;
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.ewm.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+import ru.practicum.ewm.state.StripedSimilarityState;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Коэффициенты из калькулятора сравниваются с расчетом по всем действиям заново:
+ * сумма минимальных весов пользователей пары, деленная на произведение корней сумм весов событий
+ */
+class SimilarityCalculatorTest {
+    private static final double EPSILON = 1e-9;
+
+    static Stream<Supplier<SimilarityState>> states() {
+        return Stream.of(HeapSimilarityState::new,
+                () -> new StripedSimilarityState(4, stripe -> new HeapSimilarityState()));
+    }
+
+    /**
+     * Первое действие с событием - путь нового события, последующие действия с большим весом - путь существующего
+     */
+    @ParameterizedTest
+    @MethodSource("states")
+    void newAndExistingEventPaths(Supplier<SimilarityState> stateSupplier) {
+        try (SimilarityState state = stateSupplier.get()) {
+            SimilarityCalculator calculator = new SimilarityCalculator(state);
+
+            assertThat(calculator.calculate(action(1, 10, ActionTypeAvro.VIEW, 1))).isEmpty();
+            assertThat(calculator.calculate(action(2, 10, ActionTypeAvro.LIKE, 2))).isEmpty();
+
+            // Новое событие 20: у пользователя 1 есть только событие 10
+            List<EventSimilarityAvro> newEvent = calculator.calculate(action(1, 20, ActionTypeAvro.REGISTER, 3));
+            assertThat(newEvent).hasSize(1);
+            assertPair(newEvent.getFirst(), 10, 20, 0.4 / (Math.sqrt(1.4) * Math.sqrt(0.8)));
+
+            // Существующее событие 20: вес пользователя 2 растет с нуля, затем вес пользователя 1 растет до лайка
+            List<EventSimilarityAvro> existingEvent = calculator.calculate(action(2, 20, ActionTypeAvro.VIEW, 4));
+            assertThat(existingEvent).hasSize(1);
+            assertPair(existingEvent.getFirst(), 10, 20, (0.4 + 0.4) / (Math.sqrt(1.4) * Math.sqrt(1.2)));
+
+            existingEvent = calculator.calculate(action(1, 20, ActionTypeAvro.LIKE, 5));
+            assertThat(existingEvent).hasSize(1);
+            assertPair(existingEvent.getFirst(), 10, 20, (0.4 + 0.4) / (Math.sqrt(1.4) * Math.sqrt(1.4)));
+
+            // Действие с тем же или меньшим весом ничего не меняет
+            assertThat(calculator.calculate(action(1, 20, ActionTypeAvro.VIEW, 6))).isEmpty();
+        }
+    }
+
+    /**
+     * Каждый отправленный коэффициент совпадает с расчетом по всем действиям на момент действия,
+     * а пары отправляются ровно для событий, с которыми взаимодействовал пользователь
+     */
+    @ParameterizedTest
+    @MethodSource("states")
+    void matchesBruteForceOverRandomActions(Supplier<SimilarityState> stateSupplier) {
+        Random random = new Random(42);
+        ActionTypeAvro[] types = ActionTypeAvro.values();
+        Map<Long, Map<Long, Double>> weights = new HashMap<>();
+        try (SimilarityState state = stateSupplier.get()) {
+            SimilarityCalculator calculator = new SimilarityCalculator(state);
+            long previousTimestamp = 0;
+            for (int i = 0; i < 2_000; i++) {
+                long userId = random.nextInt(30);
+                long eventId = random.nextInt(15);
+                ActionTypeAvro type = types[random.nextInt(types.length)];
+                double weight = weight(type);
+                double oldWeight = weights.getOrDefault(eventId, Map.of()).getOrDefault(userId, 0.0);
+                if (weight > oldWeight) {
+                    weights.computeIfAbsent(eventId, id -> new HashMap<>()).put(userId, weight);
+                }
+
+                List<EventSimilarityAvro> similarities = calculator.calculate(
+                        action(userId, eventId, type, random.nextInt(1_000_000)));
+
+                Set<Long> expectedNeighbors = new HashSet<>();
+                if (weight > oldWeight) {
+                    weights.forEach((otherEventId, users) -> {
+                        if (otherEventId != eventId && users.containsKey(userId)) {
+                            expectedNeighbors.add(otherEventId);
+                        }
+                    });
+                }
+                Set<Long> neighbors = new HashSet<>();
+                for (EventSimilarityAvro similarity : similarities) {
+                    assertThat(similarity.getEventA()).isLessThan(similarity.getEventB());
+                    neighbors.add(similarity.getEventA() == eventId
+                            ? similarity.getEventB()
+                            : similarity.getEventA());
+                    double expected = cosine(weights, similarity.getEventA(), similarity.getEventB());
+                    assertThat(similarity.getScore()).isCloseTo(expected, within(EPSILON));
+                    assertThat(similarity.getTimestamp().toEpochMilli()).isGreaterThanOrEqualTo(previousTimestamp);
+                    previousTimestamp = similarity.getTimestamp().toEpochMilli();
+                }
+                assertThat(neighbors).isEqualTo(expectedNeighbors);
+            }
+        }
+    }
+
+    private static double cosine(Map<Long, Map<Long, Double>> weights, long eventA, long eventB) {
+        Map<Long, Double> usersA = weights.getOrDefault(eventA, Map.of());
+        Map<Long, Double> usersB = weights.getOrDefault(eventB, Map.of());
+        double minWeightsSum = 0;
+        for (Map.Entry<Long, Double> entry : usersA.entrySet()) {
+            minWeightsSum += Math.min(entry.getValue(), usersB.getOrDefault(entry.getKey(), 0.0));
+        }
+        double sumA = usersA.values().stream().mapToDouble(Double::doubleValue).sum();
+        double sumB = usersB.values().stream().mapToDouble(Double::doubleValue).sum();
+        return minWeightsSum / (Math.sqrt(sumA) * Math.sqrt(sumB));
+    }
+
+    private static void assertPair(EventSimilarityAvro similarity, long eventA, long eventB, double score) {
+        assertThat(similarity.getEventA()).isEqualTo(eventA);
+        assertThat(similarity.getEventB()).isEqualTo(eventB);
+        assertThat(similarity.getScore()).isCloseTo(score, within(EPSILON));
+    }
+
+    private static double weight(ActionTypeAvro type) {
+        return switch (type) {
+            case VIEW -> 0.4;
+            case REGISTER -> 0.8;
+            case LIKE -> 1.0;
+        };
+    }
+
+    private static UserActionAvro action(long userId, long eventId, ActionTypeAvro type, long timestamp) {
+        return UserActionAvro.newBuilder()
+                .setUserId(userId)
+                .setEventId(eventId)
+                .setActionType(type)
+                .setTimestamp(Instant.ofEpochMilli(timestamp))
+                .build();
+    }
+}
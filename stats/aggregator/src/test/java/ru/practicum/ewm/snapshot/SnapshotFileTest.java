@@ -0,0 +1,74 @@
+package ru.practicum.ewm.snapshot;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.ewm.state.MappedSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Состояние в отображаемых в память таблицах, сохраненное в снимок и загруженное из него в новое хранилище,
+ * совпадает с исходным, включая пары, пережившие расширение таблиц
+ */
+class SnapshotFileTest {
+    private static final TopicPartition PARTITION = new TopicPartition("stats.user-actions.v1", 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsMappedStateFromSnapshot() throws IOException {
+        Path snapshot = directory.resolve("snapshot.bin");
+        Random random = new Random(42);
+        try (SimilarityState source = new MappedSimilarityState(
+                Files.createDirectory(directory.resolve("source")), 1)) {
+            for (int i = 0; i < 10_000; i++) {
+                long eventId = random.nextInt(500);
+                long userId = random.nextInt(1_000);
+                double weight = random.nextDouble();
+                source.putWeight(eventId, userId, weight);
+                source.addWeightSum(eventId, weight);
+                source.addMinWeightsSum(eventId, eventId + 1 + random.nextInt(100), weight);
+            }
+            SnapshotFile.write(snapshot, source, Map.of(PARTITION, 12_345L));
+
+            try (SimilarityState restored = new MappedSimilarityState(
+                    Files.createDirectory(directory.resolve("restored")), 1)) {
+                Map<TopicPartition, Long> offsets = SnapshotFile.read(snapshot, restored);
+
+                assertThat(offsets).containsExactly(Map.entry(PARTITION, 12_345L));
+                assertThat(contents(restored)).isEqualTo(contents(source));
+                assertThat(restored.getWeight(1, 2)).isEqualTo(source.getWeight(1, 2));
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownFormat() throws IOException {
+        Path snapshot = Files.write(directory.resolve("snapshot.bin"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        try (SimilarityState state = new MappedSimilarityState(Files.createDirectory(directory.resolve("state")), 1)) {
+            assertThatThrownBy(() -> SnapshotFile.read(snapshot, state)).isInstanceOf(IOException.class);
+        }
+    }
+
+    private static List<Map<String, Double>> contents(SimilarityState state) {
+        Map<String, Double> weights = new HashMap<>();
+        state.forEachWeight((eventId, userId, weight) -> weights.put(eventId + ":" + userId, weight));
+        Map<String, Double> weightSums = new HashMap<>();
+        state.forEachWeightSum((eventId, weightSum) -> weightSums.put(String.valueOf(eventId), weightSum));
+        Map<String, Double> minWeightsSums = new HashMap<>();
+        state.forEachMinWeightsSum((first, second, sum) -> minWeightsSums.put(first + ":" + second, sum));
+        return List.of(weights, weightSums, minWeightsSums);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.ewm.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedPairTableTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void missingPairIsZero() {
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 16)) {
+            assertThat(table.get(1, 2)).isZero();
+            assertThat(table.size()).isZero();
+        }
+    }
+
+    @Test
+    void putReturnsPreviousValue() {
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 16)) {
+            assertThat(table.put(1, 2, 0.5)).isZero();
+            assertThat(table.put(1, 2, 0.7)).isEqualTo(0.5);
+            assertThat(table.get(1, 2)).isEqualTo(0.7);
+            assertThat(table.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void keyOrderMatters() {
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 16)) {
+            table.put(1, 2, 0.5);
+            table.put(2, 1, 0.8);
+            assertThat(table.get(1, 2)).isEqualTo(0.5);
+            assertThat(table.get(2, 1)).isEqualTo(0.8);
+            assertThat(table.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void addToCreatesAndAccumulates() {
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 16)) {
+            assertThat(table.addTo(3, 4, 0.4)).isEqualTo(0.4);
+            assertThat(table.addTo(3, 4, 0.4)).isEqualTo(0.8);
+            assertThat(table.get(3, 4)).isEqualTo(0.8);
+            assertThat(table.size()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Пара (0, 0) совпадает с признаком пустого слота и хранится отдельно
+     */
+    @Test
+    void zeroPairIsStoredSeparately() {
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 16)) {
+            assertThat(table.get(0, 0)).isZero();
+            assertThat(table.put(0, 0, 0.3)).isZero();
+            assertThat(table.addTo(0, 0, 0.2)).isEqualTo(0.5);
+            assertThat(table.size()).isEqualTo(1);
+            table.put(0, 1, 0.9);
+            table.put(1, 0, 0.1);
+
+            Map<String, Double> entries = new HashMap<>();
+            table.forEach((first, second, value) -> entries.put(first + ":" + second, value));
+            assertThat(entries).containsOnly(Map.entry("0:0", 0.5), Map.entry("0:1", 0.9), Map.entry("1:0", 0.1));
+        }
+    }
+
+    /**
+     * Много пар в таблице минимального размера: вставка проходит через коллизии и несколько расширений,
+     * после которых все значения на месте, а файлы прежних поколений удалены
+     */
+    @Test
+    void keepsAllPairsThroughCollisionsAndResize() throws IOException {
+        Random random = new Random(42);
+        Map<Long, Double> expected = new HashMap<>();
+        try (MappedPairTable table = new MappedPairTable(directory, "test", 1)) {
+            long initialBytes = table.mappedBytes();
+            for (int i = 0; i < 20_000; i++) {
+                // Небольшой диапазон ключей дает повторы пар и близкие хеши
+                long first = random.nextInt(300);
+                long second = random.nextInt(300);
+                double value = random.nextDouble();
+                table.put(first, second, value);
+                expected.put(first * 1_000 + second, value);
+            }
+
+            assertThat(table.mappedBytes()).isGreaterThan(initialBytes);
+            assertThat(table.size()).isEqualTo(expected.size());
+            expected.forEach((key, value) -> assertThat(table.get(key / 1_000, key % 1_000)).isEqualTo(value));
+
+            Map<Long, Double> iterated = new HashMap<>();
+            table.forEach((first, second, value) -> iterated.put(first * 1_000 + second, value));
+            assertThat(iterated).isEqualTo(expected);
+
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files).hasSize(1);
+            }
+        }
+    }
+
+    @Test
+    void closeDeletesFile() throws IOException {
+        MappedPairTable table = new MappedPairTable(directory, "test", 16);
+        table.put(1, 2, 0.5);
+        table.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.ewm.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.RecommendationsCacheProperties;
+import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш рассчитанных рекомендаций пользователя. Ограничен по числу пользователей и по времени жизни.
+ * Рекомендации пользователя сбрасываются, когда приходит его новое действие, и когда заметно меняется сходство
+ * пары, одно из событий которой есть в его рекомендациях. Новые кандидаты, появившиеся от изменения сходства
+ * соседей посещенных событий, попадут в рекомендации не позже чем через время жизни записи.
+ * <p>
+ * Сброс выполняется на каждом экземпляре анализатора по записям из всех партиций, после их сохранения в БД,
+ * см. RecommendationsCacheFollower и SimilarityIndexFollower.
+ */
+@Component
+@Slf4j
+public class RecommendationsCache {
+    private final RecommendationsCacheProperties properties;
+    private final Cache<Long, UserRecommendations> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecommendationsCache(RecommendationsCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxUsers())
+                .expireAfterWrite(Duration.ofSeconds(properties.getTtlSeconds()))
+                .build();
+        this.hits = meterRegistry.counter("analyzer.recommendations.cache", "result", "hit");
+        this.misses = meterRegistry.counter("analyzer.recommendations.cache", "result", "miss");
+        Gauge.builder("analyzer.recommendations.cache.users", cache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    /**
+     * Возвращает рекомендации из кэша или рассчитывает и сохраняет их. Если рекомендации пользователя сброшены
+     * во время расчета, результат в кэш не попадает
+     */
+    public List<RecommendedEventProto> get(long userId, int maxResults, Supplier<List<RecommendedEventProto>> loader) {
+        if (!properties.getEnabled()) {
+            return loader.get();
+        }
+        UserRecommendations userRecommendations = cache.get(userId, id -> new UserRecommendations());
+        List<RecommendedEventProto> recommendations = userRecommendations.byMaxResults.get(maxResults);
+        if (recommendations != null) {
+            hits.increment();
+            return recommendations;
+        }
+        misses.increment();
+        recommendations = loader.get();
+        userRecommendations.put(maxResults, recommendations);
+        return recommendations;
+    }
+
+    public void invalidateUsers(Collection<Long> userIds) {
+        cache.invalidateAll(userIds);
+    }
+
+    /**
+     * Сбрасывает рекомендации, в которых есть хотя бы одно из событий. Просматривает весь кэш,
+     * поэтому вызывается один раз на пачку изменений
+     */
+    public void invalidateEvents(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        log.debug("Сброс рекомендаций с событиями, сходство которых изменилось: {}", eventIds.size());
+        cache.asMap().values().removeIf(userRecommendations -> userRecommendations.containsAny(eventIds));
+    }
+
+    public boolean isEnabled() {
+        return properties.getEnabled();
+    }
+
+    public double getScoreThreshold() {
+        return properties.getScoreThreshold();
+    }
+
+    private static class UserRecommendations {
+        private final Map<Integer, List<RecommendedEventProto>> byMaxResults = new ConcurrentHashMap<>();
+        private final Set<Long> eventIds = ConcurrentHashMap.newKeySet();
+
+        void put(int maxResults, List<RecommendedEventProto> recommendations) {
+            recommendations.forEach(recommendation -> eventIds.add(recommendation.getEventId()));
+            byMaxResults.put(maxResults, recommendations);
+        }
+
+        boolean containsAny(Set<Long> changedEventIds) {
+            for (Long eventId : eventIds) {
+                if (changedEventIds.contains(eventId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -22,5 +22,7 @@ public class KafkaConsumerProperties {
     public static class PollDuration {
         private Long userAction;
         private Long eventSimilarity;
+        // Чтение вслед за группой на каждом экземпляре: индекс соседей и сброс кэша рекомендаций
+        private Long follower = 1L;
     }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("analyzer.recommendations-cache")
+public class RecommendationsCacheProperties {
+    private Boolean enabled = true;
+    // Максимальное количество пользователей в кэше
+    private Long maxUsers = 10_000L;
+    private Long ttlSeconds = 300L;
+    // Изменение сходства пары событий, после которого рекомендации с этими событиями сбрасываются
+    private Double scoreThreshold = 0.05;
+}
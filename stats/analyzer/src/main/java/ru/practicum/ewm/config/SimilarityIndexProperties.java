@@ -0,0 +1,15 @@
+package ru.practicum.ewm.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("analyzer.similarity-index")
+public class SimilarityIndexProperties {
+    // Сколько соседей с наибольшим сходством хранить для каждого события
+    private Integer neighbors = 200;
+}
@@ -0,0 +1,75 @@
+package ru.practicum.ewm.controller;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Отправляет ответ по мере готовности клиента принимать сообщения. Источник запрашивается лениво и читается,
+ * только пока транспорт готов к отправке, поэтому ответ не накапливается в памяти целиком.
+ * При отмене вызова клиентом чтение источника прекращается.
+ * <p>
+ * Все запуски выполняются последовательно: первый - в потоке вызова, остальные - в обработчике готовности,
+ * который gRPC вызывает в том же сериализующем исполнителе
+ */
+@Slf4j
+final class FlowControlledResponse<T> implements Runnable {
+    private final ServerCallStreamObserver<T> observer;
+    private final Supplier<Iterator<T>> source;
+    private Iterator<T> iterator;
+    private volatile boolean done;
+
+    private FlowControlledResponse(ServerCallStreamObserver<T> observer, Supplier<Iterator<T>> source) {
+        this.observer = observer;
+        this.source = source;
+    }
+
+    static <T> void send(StreamObserver<T> responseObserver, Supplier<Iterator<T>> source) {
+        ServerCallStreamObserver<T> observer = (ServerCallStreamObserver<T>) responseObserver;
+        FlowControlledResponse<T> response = new FlowControlledResponse<>(observer, source);
+        observer.setOnCancelHandler(response::cancel);
+        observer.setOnReadyHandler(response);
+        response.run();
+    }
+
+    @Override
+    public void run() {
+        if (done) {
+            return;
+        }
+        try {
+            if (iterator == null) {
+                iterator = source.get();
+            }
+            // Отмена и готовность проверяются до hasNext: у порционного источника он загружает следующую порцию
+            while (true) {
+                if (done || !observer.isReady()) {
+                    return;
+                }
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                observer.onNext(iterator.next());
+            }
+            done = true;
+            observer.onCompleted();
+        } catch (Exception e) {
+            done = true;
+            observer.onError(new StatusRuntimeException(
+                    Status.INTERNAL
+                            .withDescription(e.getLocalizedMessage())
+                            .withCause(e)
+            ));
+        }
+    }
+
+    private void cancel() {
+        log.debug("Вызов отменен клиентом, отправка ответа прекращена");
+        done = true;
+    }
+}
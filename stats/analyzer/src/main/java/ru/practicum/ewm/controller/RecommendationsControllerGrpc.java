@@ -1,7 +1,5 @@
 package ru.practicum.ewm.controller;
 
-import io.grpc.Status;
-import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,47 +18,20 @@ public class RecommendationsControllerGrpc extends ru.practicum.ewm.stats.protob
 
     @Override
     public void getRecommendationsForUser(UserPredictionsRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
-        try {
-            log.info("Поступил вызов метода getRecommendationsForUser с телом: {}", request);
-            recommendationsHandler.getRecommendationsForUser(request).forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-        } catch (Exception e) {
-            responseObserver.onError(new StatusRuntimeException(
-                    Status.INTERNAL
-                            .withDescription(e.getLocalizedMessage())
-                            .withCause(e)
-            ));
-        }
+        log.info("Поступил вызов метода getRecommendationsForUser с телом: {}", request);
+        FlowControlledResponse.send(responseObserver, () -> recommendationsHandler.getRecommendationsForUser(request).iterator());
     }
 
     @Override
     public void getSimilarEvents(SimilarEventsRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
-        try {
-            log.info("Поступил вызов метода getSimilarEvents с телом: {}", request);
-            recommendationsHandler.getSimilarEvents(request).forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-        } catch (Exception e) {
-            responseObserver.onError(new StatusRuntimeException(
-                    Status.INTERNAL
-                            .withDescription(e.getLocalizedMessage())
-                            .withCause(e)
-            ));
-        }
+        log.info("Поступил вызов метода getSimilarEvents с телом: {}", request);
+        FlowControlledResponse.send(responseObserver, () -> recommendationsHandler.getSimilarEvents(request).iterator());
     }
 
 
     @Override
     public void getInteractionsCount(InteractionsCountRequestProto request, StreamObserver<RecommendedEventProto> responseObserver) {
-        try {
-            log.info("Поступил вызов метода getInteractionsCount с телом: {}", request);
-            recommendationsHandler.getInteractionsCount(request).forEach(responseObserver::onNext);
-            responseObserver.onCompleted();
-        } catch (Exception e) {
-            responseObserver.onError(new StatusRuntimeException(
-                    Status.INTERNAL
-                            .withDescription(e.getLocalizedMessage())
-                            .withCause(e)
-            ));
-        }
+        log.info("Поступил вызов метода getInteractionsCount с телом: {}", request);
+        FlowControlledResponse.send(responseObserver, () -> recommendationsHandler.getInteractionsCount(request));
     }
-}
\ No newline at end of file
+}
@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder(toBuilder = true)
-public class WeightSum {
+public class EventScore {
     private Long eventId;
-    private Double weightSum;
+    private Double score;
 }
@@ -0,0 +1,122 @@
+package ru.practicum.ewm.follower;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Читает все партиции топика на каждом экземпляре анализатора, но только до офсетов, зафиксированных группой
+ * консьюмеров. Записи до этих офсетов уже сохранены в БД тем экземпляром, которому назначена партиция.
+ * Так изменения состояния в памяти (индекс соседей, кэш рекомендаций) доходят до всех экземпляров и применяются
+ * не раньше, чем данные попали в БД.
+ * <p>
+ * group.id группы используется только для чтения ее офсетов: партиции назначаются вручную, консьюмер не вступает
+ * в группу и офсеты не фиксирует. Задержка относительно группы - интервал фиксации плюс время опроса.
+ */
+@Slf4j
+public abstract class CommittedOffsetsFollower<V> implements Runnable {
+    private final Consumer<Long, V> consumer;
+    private final String topic;
+    private final Duration pollDuration;
+
+    protected CommittedOffsetsFollower(Properties groupConsumerProperties, String topic, Duration pollDuration) {
+        Properties properties = new Properties();
+        properties.putAll(groupConsumerProperties);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        this.consumer = new KafkaConsumer<>(properties);
+        this.topic = topic;
+        this.pollDuration = pollDuration;
+    }
+
+    /**
+     * Назначает все партиции топика и переводит их на офсеты группы. Если состояние загружается из БД,
+     * вызывается до загрузки: все записи до этих офсетов уже есть в БД, а записи после них будут прочитаны
+     */
+    public void assignFromCommitted() {
+        List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .toList();
+        consumer.assign(partitions);
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+        log.info("Чтение {} начато с офсетов группы: {}", topic, committed);
+    }
+
+    /**
+     * Применяет записи, уже сохраненные в БД
+     */
+    protected abstract void apply(List<V> values);
+
+    @Override
+    public void run() {
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(consumer::wakeup));
+            while (true) {
+                Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(consumer.assignment());
+                // Партиции, дочитанные до офсетов группы, не опрашиваются, пока группа не продвинется
+                Set<TopicPartition> caughtUp = new HashSet<>();
+                for (TopicPartition partition : consumer.assignment()) {
+                    if (consumer.position(partition) >= limit(committed, partition)) {
+                        caughtUp.add(partition);
+                    }
+                }
+                consumer.pause(caughtUp);
+                Set<TopicPartition> behind = new HashSet<>(consumer.assignment());
+                behind.removeAll(caughtUp);
+                consumer.resume(behind);
+
+                ConsumerRecords<Long, V> records = consumer.poll(pollDuration);
+                List<V> values = new ArrayList<>(records.count());
+                for (TopicPartition partition : records.partitions()) {
+                    long limit = limit(committed, partition);
+                    for (ConsumerRecord<Long, V> record : records.records(partition)) {
+                        if (record.offset() >= limit) {
+                            // Остаток партиции будет прочитан после того, как группа его обработает
+                            consumer.seek(partition, record.offset());
+                            break;
+                        }
+                        values.add(record.value());
+                    }
+                }
+                if (!values.isEmpty()) {
+                    apply(values);
+                }
+            }
+        } catch (WakeupException ignored) {
+        } catch (Exception e) {
+            log.error("Ошибка при чтении топика {} вслед за группой", topic, e);
+        } finally {
+            log.info("Закрываем консьюмер {}", topic);
+            consumer.close();
+        }
+    }
+
+    /**
+     * Офсет, до которого записи уже сохранены в БД. Пока группа ничего не зафиксировала, сохраненных записей нет
+     */
+    private static long limit(Map<TopicPartition, OffsetAndMetadata> committed, TopicPartition partition) {
+        OffsetAndMetadata offset = committed.get(partition);
+        return offset == null ? 0 : offset.offset();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.ewm.follower;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.cache.RecommendationsCache;
+import ru.practicum.ewm.config.KafkaConsumerProperties;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.constants.StatsTopics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Сбрасывает на этом экземпляре рекомендации пользователей, действия которых сохранены в БД, из всех партиций.
+ * Сброс после сохранения: иначе рекомендации могут быть пересчитаны по старым данным
+ */
+@Component
+public class RecommendationsCacheFollower extends CommittedOffsetsFollower<UserActionAvro> {
+    private final RecommendationsCache recommendationsCache;
+
+    public RecommendationsCacheFollower(KafkaConsumerProperties properties, RecommendationsCache recommendationsCache) {
+        super(properties.getUserAction(), StatsTopics.STATS_USER_ACTIONS_V1_TOPIC,
+                Duration.ofSeconds(properties.getPollDurationSeconds().getFollower()));
+        this.recommendationsCache = recommendationsCache;
+    }
+
+    @Override
+    protected void apply(List<UserActionAvro> userActions) {
+        Set<Long> userIds = userActions.stream().map(UserActionAvro::getUserId).collect(Collectors.toSet());
+        recommendationsCache.invalidateUsers(userIds);
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.ewm.follower;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.cache.RecommendationsCache;
+import ru.practicum.ewm.config.KafkaConsumerProperties;
+import ru.practicum.ewm.index.SimilarityIndex;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.constants.StatsTopics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Обновляет индекс соседей этого экземпляра сходствами из всех партиций и сбрасывает рекомендации
+ * с событиями, сходство которых заметно изменилось
+ */
+@Component
+public class SimilarityIndexFollower extends CommittedOffsetsFollower<EventSimilarityAvro> {
+    private final SimilarityIndex similarityIndex;
+    private final RecommendationsCache recommendationsCache;
+
+    public SimilarityIndexFollower(KafkaConsumerProperties properties, SimilarityIndex similarityIndex,
+                                   RecommendationsCache recommendationsCache) {
+        super(properties.getEventSimilarity(), StatsTopics.STATS_EVENT_SIMILARITY_V1_TOPIC,
+                Duration.ofSeconds(properties.getPollDurationSeconds().getFollower()));
+        this.similarityIndex = similarityIndex;
+        this.recommendationsCache = recommendationsCache;
+    }
+
+    @Override
+    protected void apply(List<EventSimilarityAvro> eventSimilarities) {
+        recommendationsCache.invalidateEvents(similarityIndex.update(eventSimilarities,
+                recommendationsCache.getScoreThreshold()));
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный список соседей одного события. При переполнении вытесняется сосед с наименьшим сходством,
+ * а порог floor поднимается до его сходства. Сосед вне списка не может иметь сходство выше порога: любое его
+ * изменение приходит обновлением и возвращает его в список. Поэтому соседи со сходством выше порога известны все,
+ * и в снимок попадают только они.
+ * <p>
+ * Вместе со сходством хранится дата действия, от которого оно рассчитано. Дата вытесненного соседа теряется.
+ */
+final class NeighborList {
+    private final int capacity;
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final Map<Long, Long> actionDates = new HashMap<>();
+    private double floor = Double.NEGATIVE_INFINITY;
+    private volatile Neighbors snapshot = Neighbors.EMPTY;
+
+    NeighborList(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param actionDate Дата действия в миллисекундах
+     * @return Прежнее сходство с соседом или 0, если его не было в списке
+     */
+    synchronized double put(long neighbor, double score, long actionDate) {
+        Double previous = scores.put(neighbor, score);
+        actionDates.put(neighbor, actionDate);
+        if (scores.size() > capacity) {
+            evictLowest();
+        }
+        snapshot = null;
+        return previous == null ? 0.0 : previous;
+    }
+
+    /**
+     * @return Дата действия, от которого рассчитано сходство с соседом, или null, если соседа нет в списке
+     */
+    synchronized Long getActionDate(long neighbor) {
+        return actionDates.get(neighbor);
+    }
+
+    /**
+     * Снимок для чтения без блокировки. Пересобирается при первом чтении после изменения
+     */
+    Neighbors get() {
+        Neighbors current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = build();
+            }
+            return snapshot;
+        }
+    }
+
+    private void evictLowest() {
+        Map.Entry<Long, Double> lowest = null;
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (lowest == null || entry.getValue() < lowest.getValue()) {
+                lowest = entry;
+            }
+        }
+        scores.remove(lowest.getKey());
+        actionDates.remove(lowest.getKey());
+        floor = Math.max(floor, lowest.getValue());
+    }
+
+    private Neighbors build() {
+        Map.Entry<Long, Double>[] trusted = scores.entrySet().stream()
+                .filter(entry -> entry.getValue() > floor)
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .toArray(Map.Entry[]::new);
+        long[] eventIds = new long[trusted.length];
+        double[] neighborScores = new double[trusted.length];
+        for (int i = 0; i < trusted.length; i++) {
+            eventIds[i] = trusted[i].getKey();
+            neighborScores[i] = trusted[i].getValue();
+        }
+        return new Neighbors(eventIds, neighborScores, floor == Double.NEGATIVE_INFINITY);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.ewm.index;
+
+/**
+ * Соседи события, отсортированные по убыванию сходства
+ *
+ * @param eventIds Идентификаторы соседей
+ * @param scores   Сходство с соседом, в том же порядке
+ * @param complete В списке все соседи события. Если false, соседи с меньшим сходством, чем у последнего в списке,
+ *                 в индекс не попали
+ */
+public record Neighbors(long[] eventIds, double[] scores, boolean complete) {
+    static final Neighbors EMPTY = new Neighbors(new long[0], new double[0], true);
+
+    public int size() {
+        return eventIds.length;
+    }
+}
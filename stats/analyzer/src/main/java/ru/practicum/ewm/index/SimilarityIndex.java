@@ -0,0 +1,91 @@
+package ru.practicum.ewm.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.config.SimilarityIndexProperties;
+import ru.practicum.ewm.repository.EventsSimilarityRepository;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс ближайших соседей событий в памяти. Заполняется из events_similarity при старте и дальше обновляется
+ * сходствами из всех партиций топика, см. SimilarityIndexFollower, поэтому поиск похожих событий
+ * не обращается к таблице сходств, а индексы всех экземпляров анализатора совпадают
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SimilarityIndex {
+    private final EventsSimilarityRepository repository;
+    private final SimilarityIndexProperties properties;
+    private final Map<Long, NeighborList> neighbors = new ConcurrentHashMap<>();
+
+    /**
+     * Загружает сходства из БД. Вызывается после того, как консьюмер индекса получил офсеты группы
+     */
+    public void load() {
+        long start = System.nanoTime();
+        repository.forEachSimilarity(similarity ->
+                put(similarity.getEventA(), similarity.getEventB(), similarity.getScore(),
+                        similarity.getActionDate().toEpochMilli()));
+        log.info("Индекс соседей загружен за {} мс, событий: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), neighbors.size());
+    }
+
+    /**
+     * Применяет сходства, уже сохраненные в БД. Как и в БД, сходство пары заменяется записью с той же
+     * или более поздней датой, то есть при равных датах - последней по офсету.
+     * Вызывается из одного потока
+     *
+     * @param changeThreshold Минимальное изменение сходства, о котором нужно сообщить
+     * @return События пар, сходство которых изменилось больше чем на changeThreshold
+     */
+    public Set<Long> update(List<EventSimilarityAvro> eventSimilarities, double changeThreshold) {
+        Set<Long> changedEvents = new HashSet<>();
+        for (EventSimilarityAvro eventSimilarity : eventSimilarities) {
+            // В таблице сходство хранится с точностью NUMERIC(3, 2), в индексе так же, чтобы порядок совпадал
+            double score = Math.round(eventSimilarity.getScore() * 100) / 100.0;
+            double previous = put(eventSimilarity.getEventA(), eventSimilarity.getEventB(), score,
+                    eventSimilarity.getTimestamp().toEpochMilli());
+            if (!Double.isNaN(previous) && Math.abs(score - previous) > changeThreshold) {
+                changedEvents.add(eventSimilarity.getEventA());
+                changedEvents.add(eventSimilarity.getEventB());
+            }
+        }
+        return changedEvents;
+    }
+
+    public Neighbors getNeighbors(long eventId) {
+        NeighborList list = neighbors.get(eventId);
+        return list == null ? Neighbors.EMPTY : list.get();
+    }
+
+    /**
+     * @return Прежнее сходство пары или NaN, если в индексе уже есть сходство с более поздней датой.
+     * Дата известна, пока пара есть в списке хотя бы одного из событий
+     */
+    private double put(long eventA, long eventB, double score, long actionDate) {
+        NeighborList listA = getOrCreate(eventA);
+        NeighborList listB = getOrCreate(eventB);
+        if (isNewer(listA.getActionDate(eventB), actionDate) || isNewer(listB.getActionDate(eventA), actionDate)) {
+            return Double.NaN;
+        }
+        listB.put(eventA, score, actionDate);
+        return listA.put(eventB, score, actionDate);
+    }
+
+    private static boolean isNewer(Long storedActionDate, long actionDate) {
+        return storedActionDate != null && storedActionDate > actionDate;
+    }
+
+    private NeighborList getOrCreate(long eventId) {
+        return neighbors.computeIfAbsent(eventId, id -> new NeighborList(properties.getNeighbors()));
+    }
+}
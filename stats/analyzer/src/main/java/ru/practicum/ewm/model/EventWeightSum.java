@@ -0,0 +1,18 @@
+package ru.practicum.ewm.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@Table(name = "events_weight_sum")
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventWeightSum {
+    @Id
+    private Long eventId;
+    @Column(nullable = false)
+    private Double weightSum;
+}
@@ -0,0 +1,13 @@
+package ru.practicum.ewm.repository;
+
+import java.util.Map;
+
+public interface EventWeightSumRepositoryCustom {
+
+    /**
+     * Прибавляет приращения к суммам весов событий одним многострочным запросом
+     *
+     * @param deltas Приращение суммы весов по идентификатору события
+     */
+    void addAll(Map<Long, Double> deltas);
+}
@@ -0,0 +1,43 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class EventWeightSumRepositoryCustomImpl implements EventWeightSumRepositoryCustom {
+    // Ограничение на число параметров в одном запросе PostgreSQL - 65535
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final String ROW = "(CAST(? AS BIGINT), CAST(? AS NUMERIC(15, 2)))";
+    private static final String MERGE_TEMPLATE = """
+            MERGE INTO events_weight_sum AS t
+            USING (VALUES %s) AS s (event_id, delta)
+            ON t.event_id = s.event_id
+            WHEN MATCHED THEN
+                UPDATE SET weight_sum = t.weight_sum + s.delta
+            WHEN NOT MATCHED THEN
+                INSERT (event_id, weight_sum) VALUES (s.event_id, s.delta)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addAll(Map<Long, Double> deltas) {
+        List<Map.Entry<Long, Double>> rows = new ArrayList<>(deltas.entrySet());
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<Long, Double>> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            Object[] args = new Object[chunk.size() * 2];
+            int i = 0;
+            for (Map.Entry<Long, Double> delta : chunk) {
+                args[i++] = delta.getKey();
+                args[i++] = delta.getValue();
+            }
+            jdbcTemplate.update(MERGE_TEMPLATE.formatted(String.join(", ", Collections.nCopies(chunk.size(), ROW))),
+                    args);
+        }
+    }
+}
@@ -6,12 +6,10 @@ import ru.practicum.ewm.model.EventSimilarity;
 import ru.practicum.ewm.model.EventSimilarityId;
 
 import java.util.List;
-import java.util.Set;
 
-public interface EventsSimilarityRepository extends JpaRepository<EventSimilarity, EventSimilarityId> {
+public interface EventsSimilarityRepository extends JpaRepository<EventSimilarity, EventSimilarityId>,
+        EventsSimilarityRepositoryCustom {
 
     List<EventSimilarity> findAllByEventAOrEventB(Long eventA, Long eventB, Sort sort);
 
-    List<EventSimilarity> findAllByEventAInOrEventBIn(Set<Long> eventIds, Set<Long> eventBIds, Sort sort);
-
 }
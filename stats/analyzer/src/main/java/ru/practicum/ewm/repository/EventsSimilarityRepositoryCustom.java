@@ -0,0 +1,24 @@
+package ru.practicum.ewm.repository;
+
+import ru.practicum.ewm.model.EventSimilarity;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+public interface EventsSimilarityRepositoryCustom {
+
+    /**
+     * Сохраняет сходства одним многострочным запросом. Существующая запись обновляется,
+     * только если переданная дата новее сохраненной
+     *
+     * @param similarities Записи с уникальными парами событий
+     */
+    void upsertAll(Collection<EventSimilarity> similarities);
+
+    /**
+     * Построчно читает всю таблицу сходств, не загружая ее в память целиком
+     *
+     * @param action Обработчик очередной записи
+     */
+    void forEachSimilarity(Consumer<EventSimilarity> action);
+}
@@ -0,0 +1,78 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.model.EventSimilarity;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Пакетная запись сходств через MERGE: оператор поддерживают и PostgreSQL 15+, и H2.
+ * Сходство пары заменяется записью с той же или более поздней меткой: при равных метках побеждает
+ * последняя по офсету, см. SimilarityCalculator в агрегаторе
+ */
+@RequiredArgsConstructor
+public class EventsSimilarityRepositoryCustomImpl implements EventsSimilarityRepositoryCustom {
+    // Ограничение на число параметров в одном запросе PostgreSQL - 65535
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final int FETCH_SIZE = 10_000;
+    private static final String ROW = "(CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION), "
+            + "CAST(? AS TIMESTAMP))";
+    private static final String MERGE_TEMPLATE = """
+            MERGE INTO events_similarity AS t
+            USING (VALUES %s) AS s (event_a, event_b, score, action_date)
+            ON t.event_a = s.event_a AND t.event_b = s.event_b
+            WHEN MATCHED AND t.action_date <= s.action_date THEN
+                UPDATE SET score = s.score, action_date = s.action_date
+            WHEN NOT MATCHED THEN
+                INSERT (event_a, event_b, score, action_date) VALUES (s.event_a, s.event_b, s.score, s.action_date)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<EventSimilarity> similarities) {
+        List<EventSimilarity> rows = new ArrayList<>(similarities);
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<EventSimilarity> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            Object[] args = new Object[chunk.size() * 4];
+            int i = 0;
+            for (EventSimilarity similarity : chunk) {
+                args[i++] = similarity.getEventA();
+                args[i++] = similarity.getEventB();
+                args[i++] = similarity.getScore();
+                args[i++] = Timestamp.from(similarity.getActionDate());
+            }
+            jdbcTemplate.update(MERGE_TEMPLATE.formatted(String.join(", ", Collections.nCopies(chunk.size(), ROW))),
+                    args);
+        }
+    }
+
+    /**
+     * Драйвер PostgreSQL читает результат порциями только внутри транзакции
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void forEachSimilarity(Consumer<EventSimilarity> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT event_a, event_b, score, action_date FROM events_similarity");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, resultSet -> {
+            action.accept(EventSimilarity.builder()
+                    .eventA(resultSet.getLong("event_a"))
+                    .eventB(resultSet.getLong("event_b"))
+                    .score(resultSet.getDouble("score"))
+                    .actionDate(resultSet.getTimestamp("action_date").toInstant())
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.ewm.repository;
+
+import ru.practicum.ewm.dto.EventScore;
+import ru.practicum.ewm.model.UserAction;
+import ru.practicum.ewm.model.UserActionId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface UserActionRepositoryCustom {
+
+    /**
+     * Сохраняет действия одним многострочным запросом. Для существующей записи остаются
+     * наибольший вес и самая поздняя дата действия
+     *
+     * @param userActions Записи с уникальными парами пользователь-событие
+     */
+    void upsertAll(Collection<UserAction> userActions);
+
+    /**
+     * Возвращает сохраненные веса действий. Отсутствующих в таблице пар в результате нет
+     */
+    Map<UserActionId, Double> findWeights(Collection<UserActionId> ids);
+
+    /**
+     * Рассчитывает предсказанную оценку рекомендуемых пользователю событий одним запросом.
+     * Кандидаты - непосещенные соседи последних посещенных событий с наибольшим сходством.
+     * Оценка кандидата - среднее весов пользователя по его ближайшим посещенным соседям, взвешенное сходством
+     *
+     * @param userId           Пользователь
+     * @param recentEvents     Сколько последних посещенных событий учитывать
+     * @param maxResults       Максимальное количество кандидатов
+     * @param neighborsToScore Сколько посещенных соседей учитывать в оценке кандидата
+     * @return Кандидаты по убыванию оценки
+     */
+    List<EventScore> getPredictedScores(long userId, int recentEvents, int maxResults, int neighborsToScore);
+}
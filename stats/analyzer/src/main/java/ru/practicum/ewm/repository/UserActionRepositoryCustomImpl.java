@@ -0,0 +1,131 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.dto.EventScore;
+import ru.practicum.ewm.model.UserAction;
+import ru.practicum.ewm.model.UserActionId;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная запись действий через MERGE: оператор поддерживают и PostgreSQL 15+, и H2
+ */
+@RequiredArgsConstructor
+public class UserActionRepositoryCustomImpl implements UserActionRepositoryCustom {
+    // Ограничение на число параметров в одном запросе PostgreSQL - 65535
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final String ROW = "(CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION), "
+            + "CAST(? AS TIMESTAMP))";
+    private static final String MERGE_TEMPLATE = """
+            MERGE INTO users_actions AS t
+            USING (VALUES %s) AS s (user_id, event_id, weight, last_action_date)
+            ON t.user_id = s.user_id AND t.event_id = s.event_id
+            WHEN MATCHED AND (t.weight < s.weight OR t.last_action_date < s.last_action_date) THEN
+                UPDATE SET weight = GREATEST(t.weight, s.weight),
+                           last_action_date = GREATEST(t.last_action_date, s.last_action_date)
+            WHEN NOT MATCHED THEN
+                INSERT (user_id, event_id, weight, last_action_date)
+                VALUES (s.user_id, s.event_id, s.weight, s.last_action_date)
+            """;
+    private static final String KEY = "(CAST(? AS BIGINT), CAST(? AS BIGINT))";
+    private static final String WEIGHTS_TEMPLATE = """
+            SELECT ua.user_id, ua.event_id, ua.weight
+            FROM users_actions ua
+            JOIN (VALUES %s) AS k (user_id, event_id) ON ua.user_id = k.user_id AND ua.event_id = k.event_id
+            """;
+    // Соседи ищутся двумя соединениями по event_a и event_b, чтобы каждое использовало свой индекс
+    private static final String PREDICTED_SCORES = """
+            WITH recent AS (
+                SELECT event_id FROM users_actions
+                WHERE user_id = ?
+                ORDER BY last_action_date DESC
+                LIMIT ?
+            ),
+            recent_neighbors AS (
+                SELECT s.event_b AS event_id, s.score FROM events_similarity s JOIN recent r ON s.event_a = r.event_id
+                UNION ALL
+                SELECT s.event_a, s.score FROM events_similarity s JOIN recent r ON s.event_b = r.event_id
+            ),
+            candidates AS (
+                SELECT n.event_id FROM recent_neighbors n
+                WHERE NOT EXISTS (SELECT 1 FROM users_actions ua WHERE ua.user_id = ? AND ua.event_id = n.event_id)
+                GROUP BY n.event_id
+                ORDER BY MAX(n.score) DESC
+                LIMIT ?
+            ),
+            candidate_neighbors AS (
+                SELECT c.event_id, s.event_b AS neighbor_id, s.score
+                FROM candidates c JOIN events_similarity s ON s.event_a = c.event_id
+                UNION ALL
+                SELECT c.event_id, s.event_a, s.score
+                FROM candidates c JOIN events_similarity s ON s.event_b = c.event_id
+            ),
+            rated_neighbors AS (
+                SELECT n.event_id, n.score, ua.weight,
+                       ROW_NUMBER() OVER (PARTITION BY n.event_id ORDER BY n.score DESC) AS position
+                FROM candidate_neighbors n
+                JOIN users_actions ua ON ua.user_id = ? AND ua.event_id = n.neighbor_id
+            )
+            SELECT event_id, SUM(weight * score) / NULLIF(SUM(score), 0) AS predicted_score
+            FROM rated_neighbors
+            WHERE position <= ?
+            GROUP BY event_id
+            ORDER BY predicted_score DESC
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<UserAction> userActions) {
+        List<UserAction> rows = new ArrayList<>(userActions);
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UserAction> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            Object[] args = new Object[chunk.size() * 4];
+            int i = 0;
+            for (UserAction userAction : chunk) {
+                args[i++] = userAction.getUserId();
+                args[i++] = userAction.getEventId();
+                args[i++] = userAction.getWeight();
+                args[i++] = Timestamp.from(userAction.getLastActionDate());
+            }
+            jdbcTemplate.update(MERGE_TEMPLATE.formatted(String.join(", ", Collections.nCopies(chunk.size(), ROW))),
+                    args);
+        }
+    }
+
+    @Override
+    public Map<UserActionId, Double> findWeights(Collection<UserActionId> ids) {
+        Map<UserActionId, Double> weights = new HashMap<>();
+        List<UserActionId> keys = new ArrayList<>(ids);
+        for (int from = 0; from < keys.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<UserActionId> chunk = keys.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, keys.size()));
+            Object[] args = new Object[chunk.size() * 2];
+            int i = 0;
+            for (UserActionId id : chunk) {
+                args[i++] = id.getUserId();
+                args[i++] = id.getEventId();
+            }
+            jdbcTemplate.query(WEIGHTS_TEMPLATE.formatted(String.join(", ", Collections.nCopies(chunk.size(), KEY))),
+                    resultSet -> {
+                        weights.put(new UserActionId(resultSet.getLong("event_id"), resultSet.getLong("user_id")),
+                                resultSet.getDouble("weight"));
+                    }, args);
+        }
+        return weights;
+    }
+
+    @Override
+    public List<EventScore> getPredictedScores(long userId, int recentEvents, int maxResults, int neighborsToScore) {
+        return jdbcTemplate.query(PREDICTED_SCORES,
+                (resultSet, rowNum) -> new EventScore(resultSet.getLong("event_id"),
+                        resultSet.getDouble("predicted_score")),
+                userId, recentEvents, userId, maxResults, userId, neighborsToScore);
+    }
+}
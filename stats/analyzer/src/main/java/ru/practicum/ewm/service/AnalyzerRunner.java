@@ -3,15 +3,37 @@ package ru.practicum.ewm.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import ru.practicum.ewm.cache.RecommendationsCache;
+import ru.practicum.ewm.follower.RecommendationsCacheFollower;
+import ru.practicum.ewm.follower.SimilarityIndexFollower;
+import ru.practicum.ewm.index.SimilarityIndex;
 
 @Component
 @RequiredArgsConstructor
 public class AnalyzerRunner implements CommandLineRunner {
     private final EventSimilarityProcessor eventSimilarityProcessor;
     private final UserActionProcessor userActionProcessor;
+    private final SimilarityIndex similarityIndex;
+    private final SimilarityIndexFollower similarityIndexFollower;
+    private final RecommendationsCacheFollower recommendationsCacheFollower;
+    private final RecommendationsCache recommendationsCache;
 
     @Override
     public void run(String... args) {
+        // Офсеты группы берутся до загрузки индекса: все, что до них, уже в БД, остальное дочитает консьюмер
+        similarityIndexFollower.assignFromCommitted();
+        similarityIndex.load();
+        Thread indexThread = new Thread(similarityIndexFollower);
+        indexThread.setName("SimilarityIndexFollower");
+        indexThread.start();
+
+        if (recommendationsCache.isEnabled()) {
+            recommendationsCacheFollower.assignFromCommitted();
+            Thread cacheThread = new Thread(recommendationsCacheFollower);
+            cacheThread.setName("RecommendationsCacheFollower");
+            cacheThread.start();
+        }
+
         Thread similarityThread = new Thread(eventSimilarityProcessor);
         similarityThread.setName("EventSimilarityProcessor");
         similarityThread.start();
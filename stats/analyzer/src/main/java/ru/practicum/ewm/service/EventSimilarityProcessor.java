@@ -15,6 +15,7 @@ import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.ewm.stats.avro.constants.StatsTopics;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,12 +40,18 @@ public class EventSimilarityProcessor implements Runnable {
                 if (!records.isEmpty()) {
                     log.info("Поступили в обработку записи кол-во: {}", records.count());
                 }
+                List<EventSimilarityAvro> eventSimilarities = new ArrayList<>(records.count());
                 for (ConsumerRecord<Long, EventSimilarityAvro> record : records) {
-                    eventSimilarityHandler.handle(record.value());
-                    currentOffset.put(
-                            new TopicPartition(record.topic(), record.partition()),
-                            new OffsetAndMetadata(record.offset() + 1)
-                    );
+                    eventSimilarities.add(record.value());
+                }
+                if (!eventSimilarities.isEmpty()) {
+                    // Индекс и кэш обновляются на всех экземплярах после фиксации офсета, см. SimilarityIndexFollower
+                    eventSimilarityHandler.handle(eventSimilarities);
+                }
+                for (TopicPartition partition : records.partitions()) {
+                    List<ConsumerRecord<Long, EventSimilarityAvro>> partitionRecords = records.records(partition);
+                    currentOffset.put(partition,
+                            new OffsetAndMetadata(partitionRecords.get(partitionRecords.size() - 1).offset() + 1));
                 }
                 consumer.commitAsync((offsets, exception) -> {
                     if (exception != null) {
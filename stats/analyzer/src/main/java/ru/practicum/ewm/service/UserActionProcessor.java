@@ -14,6 +14,7 @@ import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.ewm.stats.avro.constants.StatsTopics;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,12 +46,19 @@ public class UserActionProcessor implements Runnable {
                 if (!records.isEmpty()) {
                     log.info("Поступили в обработку записи кол-во: {}", records.count());
                 }
+                List<UserActionAvro> userActions = new ArrayList<>(records.count());
                 for (ConsumerRecord<Long, UserActionAvro> record : records) {
-                    userActionHandler.handle(record.value());
-                    currentOffset.put(
-                            new TopicPartition(record.topic(), record.partition()),
-                            new OffsetAndMetadata(record.offset() + 1)
-                    );
+                    userActions.add(record.value());
+                }
+                if (!userActions.isEmpty()) {
+                    // Кэш рекомендаций сбрасывается на всех экземплярах после фиксации офсета,
+                    // см. RecommendationsCacheFollower
+                    userActionHandler.handle(userActions);
+                }
+                for (TopicPartition partition : records.partitions()) {
+                    List<ConsumerRecord<Long, UserActionAvro>> partitionRecords = records.records(partition);
+                    currentOffset.put(partition,
+                            new OffsetAndMetadata(partitionRecords.get(partitionRecords.size() - 1).offset() + 1));
                 }
                 consumer.commitAsync((offsets, exception) -> {
                     if (exception != null) {
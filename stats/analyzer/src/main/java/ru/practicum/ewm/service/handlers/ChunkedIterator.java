@@ -0,0 +1,42 @@
+package ru.practicum.ewm.service.handlers;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Загружает результат порциями по ключам: следующая порция запрашивается, только когда предыдущая прочитана
+ */
+class ChunkedIterator<K, T> implements Iterator<T> {
+    private final List<K> keys;
+    private final int chunkSize;
+    private final Function<List<K>, List<T>> loader;
+    private int nextChunkStart;
+    private Iterator<T> current = Collections.emptyIterator();
+
+    ChunkedIterator(List<K> keys, int chunkSize, Function<List<K>, List<T>> loader) {
+        this.keys = keys;
+        this.chunkSize = chunkSize;
+        this.loader = loader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && nextChunkStart < keys.size()) {
+            int chunkEnd = Math.min(nextChunkStart + chunkSize, keys.size());
+            current = loader.apply(keys.subList(nextChunkStart, chunkEnd)).iterator();
+            nextChunkStart = chunkEnd;
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+}
@@ -2,6 +2,8 @@ package ru.practicum.ewm.service.handlers;
 
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 
+import java.util.List;
+
 public interface EventSimilarityHandler {
-    void handle(EventSimilarityAvro eventSimilarityAvro);
+    void handle(List<EventSimilarityAvro> eventSimilarities);
 }
@@ -9,8 +9,9 @@ import ru.practicum.ewm.model.EventSimilarityId;
 import ru.practicum.ewm.repository.EventsSimilarityRepository;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 
-import java.time.Instant;
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -18,32 +19,27 @@ import java.util.Optional;
 public class EventSimilarityHandlerImpl implements EventSimilarityHandler {
     private final EventsSimilarityRepository repository;
 
+    /**
+     * Сохраняет пачку сходств одним запросом. В пределах пачки для каждой пары остается запись с самой поздней датой,
+     * а при равных датах - последняя по офсету: одна строка таблицы не может быть изменена одним запросом дважды
+     */
     @Transactional
     @Override
-    public void handle(EventSimilarityAvro eventSimilarityAvro) {
-        log.debug("Поступило в обработку сообщение {}", eventSimilarityAvro);
-        Optional<EventSimilarity> eventSimilarityOpt = repository.findById(EventSimilarityId.builder()
-                .eventA(eventSimilarityAvro.getEventA())
-                .eventB(eventSimilarityAvro.getEventB())
-                .build());
-        if (eventSimilarityOpt.isPresent()) {
-            EventSimilarity eventSimilarity = eventSimilarityOpt.get();
-            Instant similarityAvroTimestamp = eventSimilarityAvro.getTimestamp();
-            if (!eventSimilarity.getActionDate().isBefore(similarityAvroTimestamp)) {
-                log.trace("Поступившее собщение неактуально по дате");
-                return;
-            }
-            eventSimilarity.setScore(eventSimilarityAvro.getScore());
-            eventSimilarity.setActionDate(similarityAvroTimestamp);
-            return;
+    public void handle(List<EventSimilarityAvro> eventSimilarities) {
+        log.debug("Поступило в обработку сообщений: {}", eventSimilarities.size());
+        Map<EventSimilarityId, EventSimilarity> latest = new LinkedHashMap<>();
+        for (EventSimilarityAvro eventSimilarityAvro : eventSimilarities) {
+            EventSimilarity eventSimilarity = EventSimilarity.builder()
+                    .eventA(eventSimilarityAvro.getEventA())
+                    .eventB(eventSimilarityAvro.getEventB())
+                    .actionDate(eventSimilarityAvro.getTimestamp())
+                    .score(eventSimilarityAvro.getScore())
+                    .build();
+            latest.merge(new EventSimilarityId(eventSimilarity.getEventA(), eventSimilarity.getEventB()),
+                    eventSimilarity,
+                    (current, candidate) -> candidate.getActionDate().isBefore(current.getActionDate())
+                            ? current : candidate);
         }
-        log.trace("Сходство данных событий ранее в БД не сохранялось создаем новое");
-        repository.save(EventSimilarity.builder()
-                .eventA(eventSimilarityAvro.getEventA())
-                .eventB(eventSimilarityAvro.getEventB())
-                .actionDate(eventSimilarityAvro.getTimestamp())
-                .score(eventSimilarityAvro.getScore())
-                .build());
-
+        repository.upsertAll(latest.values());
     }
 }
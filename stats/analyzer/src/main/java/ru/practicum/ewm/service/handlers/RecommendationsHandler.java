@@ -5,6 +5,7 @@ import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
 import ru.practicum.ewm.stats.protobuf.SimilarEventsRequestProto;
 import ru.practicum.ewm.stats.protobuf.UserPredictionsRequestProto;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface RecommendationsHandler {
@@ -13,5 +14,5 @@ public interface RecommendationsHandler {
 
     List<RecommendedEventProto> getSimilarEvents(SimilarEventsRequestProto request);
 
-    List<RecommendedEventProto> getInteractionsCount(InteractionsCountRequestProto request);
+    Iterator<RecommendedEventProto> getInteractionsCount(InteractionsCountRequestProto request);
 }
@@ -2,6 +2,8 @@ package ru.practicum.ewm.service.handlers;
 
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
+import java.util.List;
+
 public interface UserActionHandler {
-    void handle(UserActionAvro userActionAvro);
+    void handle(List<UserActionAvro> userActions);
 }
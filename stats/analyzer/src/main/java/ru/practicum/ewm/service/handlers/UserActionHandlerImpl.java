@@ -6,44 +6,57 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.model.UserAction;
 import ru.practicum.ewm.model.UserActionId;
+import ru.practicum.ewm.repository.EventWeightSumRepository;
 import ru.practicum.ewm.repository.UserActionRepository;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
-import java.time.Instant;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserActionHandlerImpl implements UserActionHandler {
     private final UserActionRepository userActionRepository;
+    private final EventWeightSumRepository eventWeightSumRepository;
 
+    /**
+     * Сливает действия пачки по паре пользователь-событие, оставляя наибольший вес и самую позднюю дату,
+     * и сохраняет результат одним запросом. Слияние с уже сохраненными значениями выполняет БД.
+     * Сумма весов события увеличивается на прирост веса, поэтому ее не нужно пересчитывать при чтении.
+     * Действия одного пользователя приходят из одной партиции, поэтому прочитанные веса не меняются до записи
+     */
     @Transactional
     @Override
-    public void handle(UserActionAvro userActionAvro) {
-        log.debug("Поступило в обработку событие {}", userActionAvro);
-        Optional<UserAction> userActionOpt = userActionRepository.findById(UserActionId.builder()
-                .eventId(userActionAvro.getEventId())
-                .userId(userActionAvro.getUserId())
-                .build());
-        double newWeight = getWeightByAction(userActionAvro);
-        Instant newTimestamp = userActionAvro.getTimestamp();
-        if (userActionOpt.isPresent()) {
-            UserAction userAction = userActionOpt.get();
-            if (userAction.getWeight() < newWeight) {
-                userAction.setWeight(newWeight);
-            }
-            if (userAction.getLastActionDate().isBefore(newTimestamp)) {
-                userAction.setLastActionDate(newTimestamp);
-            }
-            return;
+    public void handle(List<UserActionAvro> userActions) {
+        log.debug("Поступило в обработку событий: {}", userActions.size());
+        Map<UserActionId, UserAction> merged = new LinkedHashMap<>();
+        for (UserActionAvro userActionAvro : userActions) {
+            UserAction userAction = UserAction.builder()
+                    .userId(userActionAvro.getUserId())
+                    .eventId(userActionAvro.getEventId())
+                    .lastActionDate(userActionAvro.getTimestamp())
+                    .weight(getWeightByAction(userActionAvro))
+                    .build();
+            merged.merge(new UserActionId(userAction.getEventId(), userAction.getUserId()), userAction,
+                    (current, candidate) -> current.toBuilder()
+                            .weight(Math.max(current.getWeight(), candidate.getWeight()))
+                            .lastActionDate(current.getLastActionDate().isBefore(candidate.getLastActionDate())
+                                    ? candidate.getLastActionDate() : current.getLastActionDate())
+                            .build());
         }
-        userActionRepository.save(UserAction.builder()
-                .userId(userActionAvro.getUserId())
-                .eventId(userActionAvro.getEventId())
-                .lastActionDate(newTimestamp)
-                .weight(newWeight)
-                .build());
+        Map<UserActionId, Double> storedWeights = userActionRepository.findWeights(merged.keySet());
+        Map<Long, Double> weightSumDeltas = new HashMap<>();
+        merged.forEach((id, userAction) -> {
+            double delta = userAction.getWeight() - storedWeights.getOrDefault(id, 0.0);
+            if (delta > 0) {
+                weightSumDeltas.merge(id.getEventId(), delta, Double::sum);
+            }
+        });
+        userActionRepository.upsertAll(merged.values());
+        eventWeightSumRepository.addAll(weightSumDeltas);
     }
 
     private double getWeightByAction(UserActionAvro userActionAvro) {
@@ -14,4 +14,19 @@ CREATE TABLE IF NOT EXISTS users_actions (
  PRIMARY KEY (event_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS events_similarity_event_b_idx ON events_similarity (event_b);
 
+CREATE INDEX IF NOT EXISTS users_actions_user_id_idx ON users_actions (user_id, last_action_date);
+
+CREATE TABLE IF NOT EXISTS events_weight_sum (
+ event_id BIGINT PRIMARY KEY,
+ weight_sum NUMERIC(15, 2) NOT NULL
+);
+
+-- Заполняется по накопленным действиям один раз, дальше поддерживается обработчиком действий.
+-- Экземпляры, стартующие одновременно, могут оба пройти проверку NOT EXISTS, строки второго пропускаются
+INSERT INTO events_weight_sum (event_id, weight_sum)
+SELECT event_id, SUM(weight) FROM users_actions
+WHERE NOT EXISTS (SELECT 1 FROM events_weight_sum)
+GROUP BY event_id
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,84 @@
+package ru.practicum.ewm.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NeighborListTest {
+
+    @Test
+    void belowCapacityIsCompleteAndSortedDescending() {
+        NeighborList list = new NeighborList(3);
+        list.put(1, 0.2, 1);
+        list.put(2, 0.9, 1);
+        list.put(3, 0.5, 1);
+
+        Neighbors neighbors = list.get();
+        assertThat(neighbors.eventIds()).containsExactly(2, 3, 1);
+        assertThat(neighbors.scores()).containsExactly(0.9, 0.5, 0.2);
+        assertThat(neighbors.complete()).isTrue();
+    }
+
+    @Test
+    void putReturnsPreviousScore() {
+        NeighborList list = new NeighborList(3);
+        assertThat(list.put(1, 0.2, 1)).isZero();
+        assertThat(list.put(1, 0.4, 2)).isEqualTo(0.2);
+        assertThat(list.get().scores()).containsExactly(0.4);
+    }
+
+    /**
+     * Вытеснение поднимает порог до сходства вытесненного соседа, и список перестает быть полным
+     */
+    @Test
+    void evictionRaisesFloorAndMarksIncomplete() {
+        NeighborList list = new NeighborList(2);
+        list.put(1, 0.3, 1);
+        list.put(2, 0.8, 1);
+        list.put(3, 0.6, 1);
+
+        Neighbors neighbors = list.get();
+        assertThat(neighbors.eventIds()).containsExactly(2, 3);
+        assertThat(neighbors.complete()).isFalse();
+        assertThat(list.getActionDate(1)).isNull();
+    }
+
+    /**
+     * Сосед, сходство которого опустилось до порога, остается в списке, но в снимок не попадает:
+     * соседи вне списка могут иметь такое же сходство
+     */
+    @Test
+    void neighborAtOrBelowFloorIsExcludedFromSnapshot() {
+        NeighborList list = new NeighborList(2);
+        list.put(1, 0.3, 1);
+        list.put(2, 0.8, 1);
+        list.put(3, 0.6, 1);
+        list.put(3, 0.3, 2);
+        assertThat(list.get().eventIds()).containsExactly(2);
+
+        list.put(2, 0.1, 2);
+        assertThat(list.get().eventIds()).isEmpty();
+        assertThat(list.get().complete()).isFalse();
+    }
+
+    @Test
+    void snapshotIsRebuiltAfterChange() {
+        NeighborList list = new NeighborList(3);
+        list.put(1, 0.2, 1);
+        Neighbors first = list.get();
+        assertThat(list.get()).isSameAs(first);
+
+        list.put(2, 0.4, 1);
+        assertThat(list.get()).isNotSameAs(first);
+        assertThat(list.get().eventIds()).containsExactly(2, 1);
+    }
+
+    @Test
+    void keepsActionDateOfNeighbor() {
+        NeighborList list = new NeighborList(2);
+        assertThat(list.getActionDate(1)).isNull();
+        list.put(1, 0.2, 100);
+        list.put(1, 0.3, 200);
+        assertThat(list.getActionDate(1)).isEqualTo(200L);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.ewm.index;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.config.SimilarityIndexProperties;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimilarityIndexTest {
+    private final SimilarityIndex index = new SimilarityIndex(null, new SimilarityIndexProperties());
+
+    @Test
+    void updateStoresPairForBothEvents() {
+        assertThat(index.update(List.of(similarity(1, 2, 0.5, 100)), 0.0)).containsOnly(1L, 2L);
+
+        assertThat(index.getNeighbors(1).eventIds()).containsExactly(2);
+        assertThat(index.getNeighbors(2).eventIds()).containsExactly(1);
+        assertThat(index.getNeighbors(3).size()).isZero();
+    }
+
+    /**
+     * Сходство с более ранней датой не заменяет уже примененное, с той же датой - заменяет
+     */
+    @Test
+    void updateSkipsOutOfOrderSimilarity() {
+        index.update(List.of(similarity(1, 2, 0.5, 200)), 0.0);
+
+        assertThat(index.update(List.of(similarity(1, 2, 0.9, 100), similarity(2, 1, 0.9, 199)), 0.0)).isEmpty();
+        assertThat(index.getNeighbors(1).scores()).containsExactly(0.5);
+
+        assertThat(index.update(List.of(similarity(2, 1, 0.6, 200)), 0.0)).containsOnly(1L, 2L);
+        assertThat(index.getNeighbors(1).scores()).containsExactly(0.6);
+
+        assertThat(index.update(List.of(similarity(1, 2, 0.7, 300)), 0.0)).containsOnly(1L, 2L);
+        assertThat(index.getNeighbors(2).scores()).containsExactly(0.7);
+    }
+
+    @Test
+    void updateReportsOnlyChangesAboveThreshold() {
+        index.update(List.of(similarity(1, 2, 0.5, 100)), 0.0);
+
+        assertThat(index.update(List.of(similarity(1, 2, 0.52, 200)), 0.05)).isEmpty();
+        assertThat(index.update(List.of(similarity(1, 2, 0.6, 300)), 0.05)).containsOnly(1L, 2L);
+    }
+
+    private static EventSimilarityAvro similarity(long eventA, long eventB, double score, long timestamp) {
+        return EventSimilarityAvro.newBuilder()
+                .setEventA(eventA)
+                .setEventB(eventB)
+                .setScore(score)
+                .setTimestamp(Instant.ofEpochMilli(timestamp))
+                .build();
+    }
+}
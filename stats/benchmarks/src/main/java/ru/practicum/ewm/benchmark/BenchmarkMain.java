@@ -0,0 +1,39 @@
+package ru.practicum.ewm.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Точка входа benchmarks.jar. Передает аргументы JMH и, если формат результатов не задан явно, сохраняет результаты
+ * в JSON в каталог benchmark-results (или {@code -Dbenchmark.results.dir}) с датой запуска в имени файла.
+ * Файлы разных запусков содержат параметры и доверительные интервалы каждого замера и сравниваются между собой
+ * для поиска регрессий.
+ * <p>
+ * Запуск: {@code java -jar benchmarks.jar [регулярное выражение бенчмарков] [опции JMH]}
+ */
+public class BenchmarkMain {
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Опции, при которых JMH выводит справку или списки и ничего не измеряет
+    private static final Set<String> INFORMATIONAL_OPTIONS = Set.of("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")
+                && arguments.stream().noneMatch(INFORMATIONAL_OPTIONS::contains)) {
+            Path directory = Path.of(System.getProperty("benchmark.results.dir", "benchmark-results"));
+            Files.createDirectories(directory);
+            Path results = directory.resolve("jmh-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".json");
+            arguments.addAll(0, List.of("-rf", "json", "-rff", results.toString()));
+        }
+        Main.main(arguments.toArray(String[]::new));
+    }
+}
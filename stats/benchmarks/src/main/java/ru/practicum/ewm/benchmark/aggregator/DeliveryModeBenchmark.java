@@ -0,0 +1,126 @@
+package ru.practicum.ewm.benchmark.aggregator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.config.KafkaClientProperties;
+import ru.practicum.ewm.config.SimilarityStateProperties;
+import ru.practicum.ewm.service.AggregatorWorker;
+import ru.practicum.ewm.service.SimilarityCalculator;
+import ru.practicum.ewm.snapshot.StateSnapshotter;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.constants.StatsTopics;
+import ru.practicum.ewm.stats.avro.serializer.AvroSerializer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность цикла агрегатора в режиме "как минимум один раз" и в транзакционном режиме
+ * при разном числе опросов на транзакцию. Брокер заменен MockConsumer и MockProducer, поэтому измеряется
+ * только работа на стороне клиента: расчет, сериализация и управление транзакциями.
+ * Задержку фиксации транзакции брокером нужно измерять на реальном кластере.
+ * <p>
+ * {@code pollsPerTransaction = 0} означает режим "как минимум один раз".
+ * Запуск: {@code java -jar benchmarks.jar DeliveryModeBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeliveryModeBenchmark {
+    private static final ActionTypeAvro[] ACTION_TYPES = ActionTypeAvro.values();
+    private static final TopicPartition PARTITION = new TopicPartition(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, 0);
+    private static final int POLLS = 200;
+    private static final int RECORDS_PER_POLL = 500;
+    private static final int USERS = 10_000;
+    private static final int EVENTS = 2_000;
+
+    @Param({"0", "1", "10", "100"})
+    private int pollsPerTransaction;
+
+    private UserActionAvro[] actions;
+    private AggregatorWorker worker;
+    private MockProducer<Long, SpecificRecordBase> producer;
+
+    @Setup(Level.Trial)
+    public void generateActions() {
+        Random random = new Random(42);
+        Instant timestamp = Instant.now();
+        actions = new UserActionAvro[POLLS * RECORDS_PER_POLL];
+        for (int i = 0; i < actions.length; i++) {
+            double value = random.nextDouble();
+            actions[i] = UserActionAvro.newBuilder()
+                    .setUserId(1 + random.nextInt(USERS))
+                    .setEventId(1 + (long) (value * value * EVENTS))
+                    .setActionType(ACTION_TYPES[random.nextInt(ACTION_TYPES.length)])
+                    .setTimestamp(timestamp)
+                    .build();
+        }
+    }
+
+    /**
+     * Каждый запуск начинается с пустого состояния и новых клиентов: закрытый консьюмер повторно не используется
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+        MockConsumer<Long, UserActionAvro> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(PARTITION));
+            consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+            addPoll(consumer, 0);
+        });
+        for (int poll = 1; poll < POLLS; poll++) {
+            int from = poll * RECORDS_PER_POLL;
+            consumer.schedulePollTask(() -> addPoll(consumer, from));
+        }
+        consumer.schedulePollTask(consumer::wakeup);
+
+        producer = new MockProducer<>(true, new LongSerializer(), new AvroSerializer());
+        HeapSimilarityState state = new HeapSimilarityState();
+        KafkaClientProperties.TransactionProperties transaction = new KafkaClientProperties.TransactionProperties();
+        transaction.setEnabled(pollsPerTransaction > 0);
+        transaction.setPollsPerTransaction(Math.max(pollsPerTransaction, 1));
+        worker = new AggregatorWorker(consumer, producer, new SimilarityCalculator(state),
+                new StateSnapshotter(state, producer, new SimilarityStateProperties()), Duration.ZERO,
+                transaction, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public int processActions() {
+        worker.run();
+        return producer.history().size();
+    }
+
+    private void addPoll(MockConsumer<Long, UserActionAvro> consumer, int from) {
+        for (int i = from; i < from + RECORDS_PER_POLL; i++) {
+            consumer.addRecord(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), i,
+                    actions[i].getUserId(), actions[i]));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.ewm.benchmark.analyzer;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.ewm.dto.EventScore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Прежний расчет рекомендаций RecommendationsHandlerImpl: те же пять последовательных запросов, что строили
+ * производные методы репозиториев, и та же обработка результатов в памяти
+ */
+class LegacyRecommendations {
+    private static final int MAX_LAST_VISITED_EVENTS_COUNT = 20;
+    private static final int MAX_SIMILAR_NEIGHBORS_COUNT = 3;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    LegacyRecommendations(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    List<EventScore> getRecommendationsForUser(long userId, int maxResults) {
+        Set<Long> recentVisits = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT event_id FROM users_actions WHERE user_id = :userId ORDER BY last_action_date DESC LIMIT :limit",
+                new MapSqlParameterSource("userId", userId).addValue("limit", MAX_LAST_VISITED_EVENTS_COUNT),
+                Long.class));
+        List<Similarity> similarNeighborList = findSimilarities(recentVisits);
+        Set<Long> unvisitedEventIds = getUnvisitedEvents(similarNeighborList, userId);
+        Set<Long> recommendedEvents = new HashSet<>();
+        for (Similarity similarity : similarNeighborList) {
+            if (recommendedEvents.size() == maxResults) break;
+            if (unvisitedEventIds.contains(similarity.eventA())) {
+                recommendedEvents.add(similarity.eventA());
+                continue;
+            }
+            if (unvisitedEventIds.contains(similarity.eventB())) {
+                recommendedEvents.add(similarity.eventB());
+            }
+        }
+        similarNeighborList = findSimilarities(recommendedEvents);
+        Map<Long, Double> userActionsMap = findWeights(userId, getEventIds(similarNeighborList));
+        Map<Long, Map<Long, Similarity>> eventSimilarityForCalculate = new HashMap<>();
+        int maxCount = recommendedEvents.size() * MAX_SIMILAR_NEIGHBORS_COUNT;
+        int count = 0;
+        for (Similarity similarity : similarNeighborList) {
+            if (count == maxCount) break;
+            Long eventForCalculate = null;
+            Map<Long, Similarity> eventSimilarities = null;
+            if (userActionsMap.containsKey(similarity.eventB())) {
+                eventSimilarities = eventSimilarityForCalculate.computeIfAbsent(similarity.eventA(), e -> new HashMap<>());
+                eventForCalculate = similarity.eventB();
+            }
+            if (userActionsMap.containsKey(similarity.eventA())) {
+                eventSimilarities = eventSimilarityForCalculate.computeIfAbsent(similarity.eventB(), e -> new HashMap<>());
+                eventForCalculate = similarity.eventA();
+            }
+            if (eventSimilarities != null && eventSimilarities.size() != MAX_SIMILAR_NEIGHBORS_COUNT) {
+                eventSimilarities.put(eventForCalculate, similarity);
+                count++;
+            }
+        }
+        List<EventScore> result = new ArrayList<>();
+        for (Long eventId : recommendedEvents) {
+            double weightedScoreSum = 0.0;
+            double scoreSum = 0.0;
+            for (Map.Entry<Long, Similarity> entry : eventSimilarityForCalculate.getOrDefault(eventId, Map.of()).entrySet()) {
+                weightedScoreSum += userActionsMap.get(entry.getKey()) * entry.getValue().score();
+                scoreSum += entry.getValue().score();
+            }
+            result.add(new EventScore(eventId, weightedScoreSum / scoreSum));
+        }
+        result.sort(Comparator.comparing(EventScore::getScore).reversed());
+        return result;
+    }
+
+    private List<Similarity> findSimilarities(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("""
+                        SELECT event_a, event_b, score FROM events_similarity
+                        WHERE event_a IN (:eventIds) OR event_b IN (:eventIds)
+                        ORDER BY score DESC
+                        """,
+                new MapSqlParameterSource("eventIds", eventIds),
+                (resultSet, rowNum) -> new Similarity(resultSet.getLong("event_a"), resultSet.getLong("event_b"),
+                        resultSet.getDouble("score")));
+    }
+
+    private Set<Long> getUnvisitedEvents(List<Similarity> similarities, long userId) {
+        Set<Long> allEventIds = getEventIds(similarities);
+        Set<Long> unvisited = new HashSet<>(allEventIds);
+        unvisited.removeAll(findWeights(userId, allEventIds).keySet());
+        return unvisited;
+    }
+
+    private Map<Long, Double> findWeights(long userId, Set<Long> eventIds) {
+        Map<Long, Double> weights = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return weights;
+        }
+        jdbcTemplate.query("SELECT event_id, weight FROM users_actions WHERE user_id = :userId AND event_id IN (:eventIds)",
+                new MapSqlParameterSource("userId", userId).addValue("eventIds", eventIds),
+                resultSet -> {
+                    weights.put(resultSet.getLong("event_id"), resultSet.getDouble("weight"));
+                });
+        return weights;
+    }
+
+    private Set<Long> getEventIds(List<Similarity> similarities) {
+        Set<Long> eventIds = new HashSet<>();
+        for (Similarity similarity : similarities) {
+            eventIds.add(similarity.eventA());
+            eventIds.add(similarity.eventB());
+        }
+        return eventIds;
+    }
+
+    private record Similarity(long eventA, long eventB, double score) {
+    }
+}
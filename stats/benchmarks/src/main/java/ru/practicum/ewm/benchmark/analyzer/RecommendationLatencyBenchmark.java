@@ -0,0 +1,152 @@
+package ru.practicum.ewm.benchmark.analyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.practicum.ewm.dto.EventScore;
+import ru.practicum.ewm.model.EventSimilarity;
+import ru.practicum.ewm.model.UserAction;
+import ru.practicum.ewm.repository.EventsSimilarityRepositoryCustomImpl;
+import ru.practicum.ewm.repository.UserActionRepositoryCustomImpl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка расчета рекомендаций для пользователя: прежние пять последовательных запросов с обработкой в памяти
+ * против одного запроса с CTE. Пользователь меняется на каждом вызове.
+ * <p>
+ * По умолчанию используется H2 в памяти. Для замера на PostgreSQL:
+ * {@code java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/analyzer -Dbenchmark.jdbc.user=analyzer
+ * -Dbenchmark.jdbc.password=analyzer -jar benchmarks.jar RecommendationLatencyBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationLatencyBenchmark {
+    private static final double[] WEIGHTS = {0.4, 0.8, 1.0};
+    private static final int USERS = 2_000;
+    private static final int EVENTS = 5_000;
+    private static final int ACTIONS_PER_USER = 30;
+    private static final int NEIGHBORS_PER_EVENT = 20;
+    private static final int RECENT_EVENTS = 20;
+    private static final int NEIGHBORS_TO_SCORE = 3;
+
+    @Param({"10", "50"})
+    private int maxResults;
+
+    private JdbcTemplate jdbcTemplate;
+    private LegacyRecommendations legacy;
+    private UserActionRepositoryCustomImpl repository;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:analyzer;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        clear();
+        fill();
+        legacy = new LegacyRecommendations(new NamedParameterJdbcTemplate(jdbcTemplate));
+        repository = new UserActionRepositoryCustomImpl(jdbcTemplate);
+        sequence = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clear();
+    }
+
+    @Benchmark
+    public List<EventScore> legacyHandler() {
+        return legacy.getRecommendationsForUser(nextUser(), maxResults);
+    }
+
+    @Benchmark
+    public List<EventScore> singleQuery() {
+        return repository.getPredictedScores(nextUser(), RECENT_EVENTS, maxResults, NEIGHBORS_TO_SCORE);
+    }
+
+    private long nextUser() {
+        return 1 + sequence++ % USERS;
+    }
+
+    /**
+     * Популярность событий неравномерна: посещения и сходства смещены к событиям с меньшими идентификаторами
+     */
+    private void fill() {
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        List<EventSimilarity> similarities = new ArrayList<>();
+        Set<Long> pairs = new HashSet<>();
+        for (long eventA = 1; eventA <= EVENTS; eventA++) {
+            for (int i = 0; i < NEIGHBORS_PER_EVENT; i++) {
+                long eventB = nextEvent(random);
+                long first = Math.min(eventA, eventB);
+                long second = Math.max(eventA, eventB);
+                if (first == second || !pairs.add(first * (EVENTS + 1) + second)) {
+                    continue;
+                }
+                similarities.add(EventSimilarity.builder()
+                        .eventA(first)
+                        .eventB(second)
+                        .score(Math.round(random.nextDouble() * 100) / 100.0)
+                        .actionDate(now)
+                        .build());
+            }
+        }
+        new EventsSimilarityRepositoryCustomImpl(jdbcTemplate).upsertAll(similarities);
+        List<UserAction> userActions = new ArrayList<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            Set<Long> visited = new HashSet<>();
+            for (int i = 0; i < ACTIONS_PER_USER; i++) {
+                long eventId = nextEvent(random);
+                if (visited.add(eventId)) {
+                    userActions.add(UserAction.builder()
+                            .userId(userId)
+                            .eventId(eventId)
+                            .weight(WEIGHTS[random.nextInt(WEIGHTS.length)])
+                            .lastActionDate(now.minusSeconds(random.nextInt(86_400)))
+                            .build());
+                }
+            }
+        }
+        new UserActionRepositoryCustomImpl(jdbcTemplate).upsertAll(userActions);
+    }
+
+    private long nextEvent(Random random) {
+        double value = random.nextDouble();
+        return 1 + (long) (value * value * EVENTS);
+    }
+
+    private void clear() {
+        jdbcTemplate.update("DELETE FROM events_similarity");
+        jdbcTemplate.update("DELETE FROM users_actions");
+    }
+}
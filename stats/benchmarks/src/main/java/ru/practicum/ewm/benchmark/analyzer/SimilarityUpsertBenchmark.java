@@ -0,0 +1,106 @@
+package ru.practicum.ewm.benchmark.analyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.practicum.ewm.model.EventSimilarity;
+import ru.practicum.ewm.repository.EventsSimilarityRepositoryCustomImpl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Число записей о сходстве в секунду, сохраняемых в events_similarity, в зависимости от размера пачки.
+ * Пачка из одной записи соответствует построчной обработке. Пары событий повторяются по кругу с растущей датой,
+ * поэтому в установившемся режиме запрос в основном обновляет существующие строки.
+ * <p>
+ * По умолчанию используется H2 в памяти. Для замера на PostgreSQL:
+ * {@code java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/analyzer -Dbenchmark.jdbc.user=analyzer
+ * -Dbenchmark.jdbc.password=analyzer -jar benchmarks.jar SimilarityUpsertBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityUpsertBenchmark {
+    private static final int RECORDS_PER_INVOCATION = 1_000;
+    private static final int PAIRS = 200_000;
+    private static final int EVENTS_B = 1_000;
+
+    @Param({"1", "10", "100", "1000"})
+    private int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+    private EventsSimilarityRepositoryCustomImpl repository;
+    private final Random random = new Random(42);
+    private long startMillis;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:analyzer;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM events_similarity");
+        repository = new EventsSimilarityRepositoryCustomImpl(jdbcTemplate);
+        startMillis = Instant.now().toEpochMilli();
+        sequence = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM events_similarity");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS_PER_INVOCATION)
+    public void upsert() {
+        List<EventSimilarity> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+            batch.add(nextSimilarity());
+            if (batch.size() == batchSize) {
+                repository.upsertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            repository.upsertAll(batch);
+        }
+    }
+
+    /**
+     * Подряд идущие записи относятся к разным парам, поэтому пары в пачке уникальны, как после слияния в обработчике
+     */
+    private EventSimilarity nextSimilarity() {
+        int pair = (int) (sequence % PAIRS);
+        return EventSimilarity.builder()
+                .eventA(1L + pair / EVENTS_B)
+                .eventB(1_000_000L + pair % EVENTS_B)
+                .score(Math.round(random.nextDouble() * 100) / 100.0)
+                .actionDate(Instant.ofEpochMilli(startMillis + sequence++))
+                .build();
+    }
+}
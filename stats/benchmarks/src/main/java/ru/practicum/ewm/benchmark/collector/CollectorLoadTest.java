@@ -0,0 +1,140 @@
+package ru.practicum.ewm.benchmark.collector;
+
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import ru.practicum.ewm.stats.protobuf.ActionTypeProto;
+import ru.practicum.ewm.stats.protobuf.UserActionBatchProto;
+import ru.practicum.ewm.stats.protobuf.UserActionControllerGrpc;
+import ru.practicum.ewm.stats.protobuf.UserActionProto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест одного экземпляра коллектора: действий в секунду при унарных вызовах, пачках и потоке.
+ * Каждый режим отправляет одинаковое число действий с одинаковым числом параллельных клиентов и считается
+ * завершенным, когда коллектор ответил на все вызовы. Когда коллектор отвечает, зависит от его режима доставки
+ * collector.kafka.delivery_mode, поэтому результаты стоит сравнивать для каждого режима отдельно.
+ * <p>
+ * Запуск против работающего коллектора:
+ * {@code java -cp benchmarks.jar ru.practicum.ewm.benchmark.collector.CollectorLoadTest localhost:59090 100000 8}
+ */
+public class CollectorLoadTest {
+    private static final ActionTypeProto[] ACTION_TYPES = {
+            ActionTypeProto.ACTION_VIEW, ActionTypeProto.ACTION_REGISTER, ActionTypeProto.ACTION_LIKE};
+    private static final int BATCH_SIZE = 500;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Использование: CollectorLoadTest <host:port> [действий] [клиентов]");
+            return;
+        }
+        String target = args[0];
+        int actions = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(target).usePlaintext().build();
+        try {
+            List<UserActionProto> generated = generate(actions);
+            // Прогрев соединения и JIT коллектора
+            run("прогрев", clients, generated, part -> sendStream(channel, part));
+            run("унарный", clients, generated, part -> sendUnary(channel, part));
+            run("пачки", clients, generated, part -> sendBatches(channel, part));
+            run("поток", clients, generated, part -> sendStream(channel, part));
+        } finally {
+            channel.shutdown().awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void run(String mode, int clients, List<UserActionProto> actions, Sender sender) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            int partSize = (actions.size() + clients - 1) / clients;
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int from = 0; from < actions.size(); from += partSize) {
+                List<UserActionProto> part = actions.subList(from, Math.min(from + partSize, actions.size()));
+                results.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        sender.send(part);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-10s %,d действий за %.2f с: %,.0f действий/с%n", mode, actions.size(), seconds,
+                    actions.size() / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sendUnary(ManagedChannel channel, List<UserActionProto> actions) {
+        UserActionControllerGrpc.UserActionControllerBlockingStub stub = UserActionControllerGrpc.newBlockingStub(channel);
+        for (UserActionProto action : actions) {
+            stub.collectUserAction(action);
+        }
+    }
+
+    private static void sendBatches(ManagedChannel channel, List<UserActionProto> actions) {
+        UserActionControllerGrpc.UserActionControllerBlockingStub stub = UserActionControllerGrpc.newBlockingStub(channel);
+        for (int from = 0; from < actions.size(); from += BATCH_SIZE) {
+            stub.collectUserActionBatch(UserActionBatchProto.newBuilder()
+                    .addAllActions(actions.subList(from, Math.min(from + BATCH_SIZE, actions.size())))
+                    .build());
+        }
+    }
+
+    private static void sendStream(ManagedChannel channel, List<UserActionProto> actions) throws InterruptedException {
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        StreamObserver<UserActionProto> requests = UserActionControllerGrpc.newStub(channel)
+                .collectUserActions(new StreamObserver<>() {
+                    @Override
+                    public void onNext(Empty value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        acknowledged.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        acknowledged.complete(null);
+                    }
+                });
+        actions.forEach(requests::onNext);
+        requests.onCompleted();
+        acknowledged.join();
+    }
+
+    private static List<UserActionProto> generate(int count) {
+        Random random = new Random(42);
+        long seconds = System.currentTimeMillis() / 1000;
+        List<UserActionProto> actions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            actions.add(UserActionProto.newBuilder()
+                    .setUserId(1 + random.nextInt(10_000))
+                    .setEventId(1 + random.nextInt(2_000))
+                    .setActionType(ACTION_TYPES[random.nextInt(ACTION_TYPES.length)])
+                    .setTimestamp(Timestamp.newBuilder().setSeconds(seconds).build())
+                    .build());
+        }
+        return actions;
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+        void send(List<UserActionProto> actions) throws InterruptedException;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.ewm.benchmark.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.ewm.event.repository.EventSearchFunctionContributor;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время текстового поиска событий: LIKE по аннотации и описанию против полнотекстового поиска по GIN индексу
+ * с тем же выражением, что и в сервисе событий: оно берется из {@link EventSearchFunctionContributor}.
+ * Запросы повторяют публичный поиск: первая страница из 10 событий по дате. Слова текстов выбираются
+ * с неравномерным распределением, поэтому частое слово встречается в большей части событий, а редкое - в единицах.
+ * <p>
+ * Нужен PostgreSQL. Таблица events_text_search_benchmark заполняется один раз и переиспользуется в следующих запусках:
+ * {@code java -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/main -Dbenchmark.jdbc.user=event-service
+ * -Dbenchmark.jdbc.password=5432 -jar benchmarks.jar EventTextSearchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventTextSearchBenchmark {
+    private static final String TABLE = "events_text_search_benchmark";
+    private static final int EVENTS = 1_000_000;
+    private static final int WORDS = 50_000;
+    private static final int ANNOTATION_WORDS = 20;
+    private static final int DESCRIPTION_WORDS = 60;
+    private static final int INSERT_BATCH = 10_000;
+    private static final String TEXT_VECTOR = EventSearchFunctionContributor.textVector("annotation", "description");
+
+    /**
+     * Номер слова в словаре: чем меньше номер, тем чаще слово встречается
+     */
+    @Param({"3", "500", "40000"})
+    private int wordRank;
+
+    private JdbcTemplate jdbcTemplate;
+    private String word;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/main"),
+                System.getProperty("benchmark.jdbc.user", "event-service"),
+                System.getProperty("benchmark.jdbc.password", "5432")));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + "(" +
+                "event_id BIGINT PRIMARY KEY, " +
+                "annotation varchar(2000), " +
+                "description varchar(7000), " +
+                "event_date timestamp NOT NULL)");
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + TABLE, Long.class);
+        if (count == null || count < EVENTS) {
+            fill();
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + TABLE + "_text_idx ON " + TABLE +
+                " USING GIN (" + TEXT_VECTOR + ")");
+        jdbcTemplate.execute("ANALYZE " + TABLE);
+        word = word(wordRank);
+    }
+
+    @Benchmark
+    public List<Long> like() {
+        String pattern = "%" + word + "%";
+        return jdbcTemplate.queryForList("SELECT event_id FROM " + TABLE +
+                " WHERE annotation ILIKE ? OR description ILIKE ? ORDER BY event_date LIMIT 10",
+                Long.class, pattern, pattern);
+    }
+
+    @Benchmark
+    public List<Long> fullText() {
+        return jdbcTemplate.queryForList("SELECT event_id FROM " + TABLE +
+                " WHERE " + TEXT_VECTOR + " @@ " + EventSearchFunctionContributor.textQuery("?") +
+                " ORDER BY event_date LIMIT 10",
+                Long.class, word);
+    }
+
+    private void fill() {
+        jdbcTemplate.execute("TRUNCATE " + TABLE);
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        for (long id = 1; id <= EVENTS; id++) {
+            batch.add(new Object[]{id, text(random, ANNOTATION_WORDS), text(random, DESCRIPTION_WORDS),
+                    Timestamp.valueOf(start.plusMinutes(random.nextInt(525_600)))});
+            if (batch.size() == INSERT_BATCH) {
+                insert(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + "(event_id, annotation, description, event_date) " +
+                "VALUES (?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            double value = random.nextDouble();
+            // Квадрат равномерной величины смещает выбор к словам с малым номером
+            text.append(word((int) (value * value * WORDS))).append(' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Слова одинаковой длины с разделителями, поэтому ни одно слово не является подстрокой другого
+     */
+    private static String word(int rank) {
+        return String.format("w%05dx", rank);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.ewm.benchmark.serialization;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.deserializer.BaseAvroDeserializer;
+import ru.practicum.ewm.stats.avro.deserializer.EventSimilarityDeserializer;
+import ru.practicum.ewm.stats.avro.deserializer.UserActionDeserializer;
+import ru.practicum.ewm.stats.avro.serializer.AvroSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Записей в секунду при сериализации и десериализации прежним и текущим способом для обоих типов сообщений.
+ * Каждый вызов обрабатывает одну запись, поэтому метрика gc.alloc.rate.norm профилировщика gc - это байт
+ * выделенной памяти на запись.
+ * <p>
+ * Запуск: {@code java -jar benchmarks.jar AvroSerdeBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvroSerdeBenchmark {
+    private static final ActionTypeAvro[] ACTION_TYPES = ActionTypeAvro.values();
+    private static final String TOPIC = "benchmark";
+    private static final int RECORDS = 1_024;
+
+    @Param({"UserActionAvro", "EventSimilarityAvro"})
+    private String recordType;
+
+    private SpecificRecordBase[] records;
+    private byte[][] serialized;
+    private AvroSerializer serializer;
+    private BaseAvroDeserializer<?> deserializer;
+    private LegacyAvroSerde<?> legacy;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        Instant timestamp = Instant.now();
+        boolean userActions = recordType.equals("UserActionAvro");
+        records = new SpecificRecordBase[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = userActions
+                    ? UserActionAvro.newBuilder()
+                    .setUserId(1 + random.nextInt(10_000))
+                    .setEventId(1 + random.nextInt(2_000))
+                    .setActionType(ACTION_TYPES[random.nextInt(ACTION_TYPES.length)])
+                    .setTimestamp(timestamp)
+                    .build()
+                    : EventSimilarityAvro.newBuilder()
+                    .setEventA(1 + random.nextInt(2_000))
+                    .setEventB(2_001 + random.nextInt(2_000))
+                    .setScore(random.nextDouble())
+                    .setTimestamp(timestamp)
+                    .build();
+        }
+        serializer = new AvroSerializer();
+        deserializer = userActions ? new UserActionDeserializer() : new EventSimilarityDeserializer();
+        legacy = new LegacyAvroSerde<>(userActions ? UserActionAvro.getClassSchema()
+                : EventSimilarityAvro.getClassSchema());
+        serialized = new byte[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            serialized[i] = legacy.serialize(records[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeLegacy() throws IOException {
+        return legacy.serialize(records[next()]);
+    }
+
+    @Benchmark
+    public byte[] serializeReusing() {
+        return serializer.serialize(TOPIC, records[next()]);
+    }
+
+    @Benchmark
+    public Object deserializeLegacy() throws IOException {
+        return legacy.deserialize(serialized[next()]);
+    }
+
+    @Benchmark
+    public Object deserializeReusing() {
+        return deserializer.deserialize(TOPIC, serialized[next()]);
+    }
+
+    private int next() {
+        index = (index + 1) & (RECORDS - 1);
+        return index;
+    }
+}
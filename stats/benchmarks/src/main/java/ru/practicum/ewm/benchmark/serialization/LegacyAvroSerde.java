@@ -0,0 +1,39 @@
+package ru.practicum.ewm.benchmark.serialization;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Прежние AvroSerializer и BaseAvroDeserializer: новые поток, энкодер и писатель на каждую запись,
+ * новый декодер на каждое чтение
+ */
+class LegacyAvroSerde<T extends SpecificRecordBase> {
+    private final SpecificDatumReader<T> reader;
+
+    LegacyAvroSerde(Schema schema) {
+        this.reader = new SpecificDatumReader<>(schema);
+    }
+
+    byte[] serialize(SpecificRecordBase data) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            new SpecificDatumWriter<SpecificRecordBase>(data.getSchema()).write(data, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        }
+    }
+
+    T deserialize(byte[] data) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, null);
+        return reader.read(null, decoder);
+    }
+}
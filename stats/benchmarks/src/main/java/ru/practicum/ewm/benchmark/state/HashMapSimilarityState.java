@@ -0,0 +1,84 @@
+package ru.practicum.ewm.benchmark.state;
+
+import ru.practicum.ewm.state.EventValueConsumer;
+import ru.practicum.ewm.state.PairValueConsumer;
+import ru.practicum.ewm.state.SimilarityState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Исходная раскладка состояния агрегатора на вложенных HashMap с упакованными ключами и значениями
+ */
+class HashMapSimilarityState implements SimilarityState {
+    private final Map<Long, Map<Long, Double>> userActionWeightMap = new HashMap<>();
+    private final Map<Long, Double> weightSumMap = new HashMap<>();
+    private final Map<Long, Map<Long, Double>> minWeightsSumMap = new HashMap<>();
+
+    @Override
+    public double getWeight(long eventId, long userId) {
+        return userActionWeightMap.getOrDefault(eventId, Map.of()).getOrDefault(userId, 0.0);
+    }
+
+    @Override
+    public void putWeight(long eventId, long userId, double weight) {
+        userActionWeightMap.computeIfAbsent(eventId, e -> new HashMap<>()).put(userId, weight);
+    }
+
+    @Override
+    public double getWeightSum(long eventId) {
+        return weightSumMap.getOrDefault(eventId, 0.0);
+    }
+
+    @Override
+    public double addWeightSum(long eventId, double delta) {
+        return weightSumMap.merge(eventId, delta, Double::sum);
+    }
+
+    /**
+     * Как и исходный агрегатор, просматривает все события и ищет среди их пользователей переданного
+     */
+    @Override
+    public void forEachEventOfUser(long userId, EventValueConsumer consumer) {
+        userActionWeightMap.forEach((eventId, usersWeight) -> {
+            Double weight = usersWeight.get(userId);
+            if (weight != null) {
+                consumer.accept(eventId, weight);
+            }
+        });
+    }
+
+    @Override
+    public double getMinWeightsSum(long first, long second) {
+        return minWeightsSumMap.getOrDefault(first, Map.of()).getOrDefault(second, 0.0);
+    }
+
+    @Override
+    public double addMinWeightsSum(long first, long second, double delta) {
+        return minWeightsSumMap.computeIfAbsent(first, e -> new HashMap<>()).merge(second, delta, Double::sum);
+    }
+
+    @Override
+    public void forEachWeight(PairValueConsumer consumer) {
+        userActionWeightMap.forEach((eventId, usersWeight) ->
+                usersWeight.forEach((userId, weight) -> consumer.accept(eventId, userId, weight)));
+    }
+
+    @Override
+    public void forEachWeightSum(EventValueConsumer consumer) {
+        weightSumMap.forEach(consumer::accept);
+    }
+
+    @Override
+    public void forEachMinWeightsSum(PairValueConsumer consumer) {
+        minWeightsSumMap.forEach((first, sums) ->
+                sums.forEach((second, sum) -> consumer.accept(first, second, sum)));
+    }
+
+    @Override
+    public void close() {
+        userActionWeightMap.clear();
+        weightSumMap.clear();
+        minWeightsSumMap.clear();
+    }
+}
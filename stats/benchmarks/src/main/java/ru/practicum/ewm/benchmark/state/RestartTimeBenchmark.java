@@ -0,0 +1,109 @@
+package ru.practicum.ewm.benchmark.state;
+
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.service.SimilarityCalculator;
+import ru.practicum.ewm.snapshot.SnapshotFile;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.constants.StatsTopics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время восстановления состояния агрегатора при рестарте: повторная обработка всей истории действий
+ * против загрузки снимка и обработки хвоста, накопленного после него.
+ * Чтение из Kafka не учитывается, поэтому для повторной обработки это нижняя оценка.
+ * <p>
+ * Запуск: {@code java -jar benchmarks.jar RestartTimeBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RestartTimeBenchmark {
+    private static final ActionTypeAvro[] ACTION_TYPES = ActionTypeAvro.values();
+    private static final int EVENTS = 5_000;
+    private static final int TAIL_PERCENT = 1;
+
+    @Param({"100000", "1000000"})
+    private int actions;
+
+    private UserActionAvro[] history;
+    private int snapshotSize;
+    private Path directory;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        Instant timestamp = Instant.now();
+        int users = Math.max(actions / 10, 1);
+        history = new UserActionAvro[actions];
+        for (int i = 0; i < actions; i++) {
+            double value = random.nextDouble();
+            history[i] = UserActionAvro.newBuilder()
+                    .setUserId(1 + random.nextInt(users))
+                    .setEventId(1 + (long) (value * value * EVENTS))
+                    .setActionType(ACTION_TYPES[random.nextInt(ACTION_TYPES.length)])
+                    .setTimestamp(timestamp)
+                    .build();
+        }
+        snapshotSize = actions - actions / 100 * TAIL_PERCENT;
+        SimilarityState state = replay(new HeapSimilarityState(), 0, snapshotSize);
+        directory = Files.createTempDirectory("restart-time");
+        snapshot = directory.resolve("snapshot.bin");
+        SnapshotFile.write(snapshot, state, Map.of(new TopicPartition(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, 0),
+                (long) snapshotSize));
+        state.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public SimilarityState replayHistory() {
+        return replay(new HeapSimilarityState(), 0, actions);
+    }
+
+    @Benchmark
+    public SimilarityState loadSnapshotAndReplayTail() throws IOException {
+        SimilarityState state = new HeapSimilarityState();
+        Map<TopicPartition, Long> offsets = SnapshotFile.read(snapshot, state);
+        int from = offsets.values().iterator().next().intValue();
+        return replay(state, from, actions);
+    }
+
+    private SimilarityState replay(SimilarityState state, int from, int to) {
+        SimilarityCalculator calculator = new SimilarityCalculator(state);
+        for (int i = from; i < to; i++) {
+            calculator.calculate(history[i]);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.ewm.benchmark.state;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.service.SimilarityCalculator;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость обработки действия в зависимости от размера каталога событий.
+ * Каждый пользователь из пачки ранее просматривал {@link #EVENTS_PER_USER} событий и либо ставит лайк одному из них,
+ * либо просматривает новое событие. Объем полезной работы на действие постоянен,
+ * поэтому рост времени показывает только цену обхода состояния.
+ * Раскладка {@code hash-map} воспроизводит исходный обход всех событий, {@code heap} - обход индекса пользователя.
+ * <p>
+ * Запуск: {@code java -jar benchmarks.jar SimilarityUpdateBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = SimilarityUpdateBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = SimilarityUpdateBenchmark.BATCH_SIZE)
+@Fork(1)
+public class SimilarityUpdateBenchmark {
+    static final int BATCH_SIZE = 1_000;
+    private static final int EVENTS_PER_USER = 10;
+    private static final long BACKGROUND_USER_ID = 1_000_000_000L;
+
+    @Param({"1000", "10000", "100000"})
+    private int events;
+
+    @Param({"hash-map", "heap"})
+    private String layout;
+
+    private SimilarityState state;
+    private SimilarityCalculator calculator;
+    private UserActionAvro[] existingEventActions;
+    private UserActionAvro[] newEventActions;
+    private int next;
+
+    /**
+     * Состояние пересоздается на каждую итерацию: лайк повышает вес, и повторное действие ничего бы не пересчитало
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        state = "heap".equals(layout) ? new HeapSimilarityState() : new HashMapSimilarityState();
+        calculator = new SimilarityCalculator(state);
+        for (long eventId = 1; eventId <= events; eventId++) {
+            state.putWeight(eventId, BACKGROUND_USER_ID + eventId, 0.4);
+            state.addWeightSum(eventId, 0.4);
+        }
+        Random random = new Random(42);
+        Instant timestamp = Instant.now();
+        existingEventActions = new UserActionAvro[BATCH_SIZE];
+        newEventActions = new UserActionAvro[BATCH_SIZE];
+        for (int user = 0; user < BATCH_SIZE; user++) {
+            long[] userEvents = random.longs(1, events + 1).distinct().limit(EVENTS_PER_USER).toArray();
+            for (int i = 0; i < userEvents.length; i++) {
+                state.putWeight(userEvents[i], user + 1, 0.4);
+                state.addWeightSum(userEvents[i], 0.4);
+                for (int j = 0; j < i; j++) {
+                    state.addMinWeightsSum(Math.min(userEvents[i], userEvents[j]),
+                            Math.max(userEvents[i], userEvents[j]), 0.4);
+                }
+            }
+            existingEventActions[user] = UserActionAvro.newBuilder()
+                    .setUserId(user + 1)
+                    .setEventId(userEvents[0])
+                    .setActionType(ActionTypeAvro.LIKE)
+                    .setTimestamp(timestamp)
+                    .build();
+            newEventActions[user] = UserActionAvro.newBuilder()
+                    .setUserId(user + 1)
+                    .setEventId(events + user + 1)
+                    .setActionType(ActionTypeAvro.VIEW)
+                    .setTimestamp(timestamp)
+                    .build();
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        state.close();
+    }
+
+    @Benchmark
+    public List<EventSimilarityAvro> updateExistingEvent() {
+        return calculator.calculate(existingEventActions[next++]);
+    }
+
+    @Benchmark
+    public List<EventSimilarityAvro> addNewEvent() {
+        return calculator.calculate(newEventActions[next++]);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.practicum.ewm.benchmark.state;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.practicum.ewm.state.HeapSimilarityState;
+import ru.practicum.ewm.state.MappedSimilarityState;
+import ru.practicum.ewm.state.SimilarityState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Сравнивает объем памяти, занимаемый состоянием агрегатора в исходной раскладке на вложенных HashMap
+ * и в хранилищах {@link HeapSimilarityState} и {@link MappedSimilarityState}.
+ * Все раскладки заполняются одним и тем же синтетическим набором действий.
+ * <p>
+ * Запуск: {@code java -cp benchmarks.jar ru.practicum.ewm.benchmark.state.StateFootprint [users] [events] [actionsPerUser]}
+ */
+public class StateFootprint {
+    private static final double[] WEIGHTS = {0.4, 0.8, 1.0};
+
+    public static void main(String[] args) throws IOException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int actionsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long[][] userEvents = generateUserEvents(users, events, actionsPerUser);
+        double[][] userWeights = generateWeights(userEvents);
+
+        HashMapSimilarityState hashMapState = new HashMapSimilarityState();
+        fill(userEvents, userWeights, hashMapState);
+        report("hash-map", GraphLayout.parseInstance(hashMapState).totalSize(), 0);
+        hashMapState.close();
+
+        HeapSimilarityState heapState = new HeapSimilarityState();
+        fill(userEvents, userWeights, heapState);
+        report("heap", GraphLayout.parseInstance(heapState).totalSize(), 0);
+        heapState.close();
+
+        Path directory = Files.createTempDirectory("state-footprint");
+        try (MappedSimilarityState mappedState = new MappedSimilarityState(directory, 1024)) {
+            fill(userEvents, userWeights, mappedState);
+            report("mapped", GraphLayout.parseInstance(mappedState).totalSize(), mappedState.mappedBytes());
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Заполняет состояние так же, как его заполнил бы агрегатор после обработки всех действий
+     */
+    private static void fill(long[][] userEvents, double[][] userWeights, SimilarityState state) {
+        for (int user = 0; user < userEvents.length; user++) {
+            long[] events = userEvents[user];
+            double[] weights = userWeights[user];
+            for (int i = 0; i < events.length; i++) {
+                state.putWeight(events[i], user + 1, weights[i]);
+                state.addWeightSum(events[i], weights[i]);
+                for (int j = 0; j < i; j++) {
+                    state.addMinWeightsSum(Math.min(events[i], events[j]), Math.max(events[i], events[j]),
+                            Math.min(weights[i], weights[j]));
+                }
+            }
+        }
+    }
+
+    private static long[][] generateUserEvents(int users, int events, int actionsPerUser) {
+        Random random = new Random(42);
+        long[][] result = new long[users][];
+        for (int user = 0; user < users; user++) {
+            // Популярные события выбираются чаще: квадрат равномерной величины смещает выборку к малым id
+            result[user] = random.doubles()
+                    .mapToLong(value -> 1 + (long) (value * value * events))
+                    .distinct()
+                    .limit(Math.min(actionsPerUser, events))
+                    .toArray();
+        }
+        return result;
+    }
+
+    private static double[][] generateWeights(long[][] userEvents) {
+        Random random = new Random(7);
+        double[][] result = new double[userEvents.length][];
+        for (int user = 0; user < userEvents.length; user++) {
+            result[user] = random.ints(userEvents[user].length, 0, WEIGHTS.length)
+                    .mapToDouble(index -> WEIGHTS[index])
+                    .toArray();
+        }
+        return result;
+    }
+
+    private static void report(String layout, long heapBytes, long offHeapBytes) {
+        System.out.printf("%-10s heap: %,15d B   off-heap: %,15d B%n", layout, heapBytes, offHeapBytes);
+    }
+}
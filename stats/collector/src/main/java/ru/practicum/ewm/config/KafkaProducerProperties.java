@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.producer.DeliveryMode;
 
 import java.util.Properties;
 
@@ -12,5 +13,10 @@ import java.util.Properties;
 @ToString
 @ConfigurationProperties("collector.kafka")
 public class KafkaProducerProperties {
-    Properties producer;
+    private Properties producer;
+    private DeliveryMode deliveryMode = DeliveryMode.ASYNC_ACK;
+    /**
+     * Сколько продюсер при остановке ждет отправки накопленных записей
+     */
+    private Long closeTimeoutSeconds = 10L;
 }
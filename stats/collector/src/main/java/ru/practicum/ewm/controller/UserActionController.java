@@ -8,28 +8,111 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 import ru.practicum.ewm.service.UserActionHandler;
+import ru.practicum.ewm.stats.protobuf.UserActionBatchProto;
 import ru.practicum.ewm.stats.protobuf.UserActionControllerGrpc;
 import ru.practicum.ewm.stats.protobuf.UserActionProto;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @GrpcService
 @Slf4j
 @RequiredArgsConstructor
 public class UserActionController extends UserActionControllerGrpc.UserActionControllerImplBase {
+    private static final int STREAM_BATCH_SIZE = 500; // Сколько действий из потока отправляется в Kafka одной пачкой
     private final UserActionHandler userActionHandler;
 
+    /**
+     * Отвечает, когда действие принято в соответствии с режимом доставки коллектора
+     */
     @Override
     public void collectUserAction(UserActionProto request, StreamObserver<Empty> responseObserver) {
+        log.debug("Поступил вызов метода collectUserAction с телом: {}", request);
+        CompletableFuture<Void> acknowledged;
         try {
-            log.info("Поступил вызов метода collectUserAction с телом: {}", request);
-            userActionHandler.collectUserAction(request);
-            responseObserver.onNext(Empty.getDefaultInstance());
-            responseObserver.onCompleted();
+            acknowledged = userActionHandler.collectUserAction(request);
+        } catch (Exception e) {
+            acknowledged = CompletableFuture.failedFuture(e);
+        }
+        respondWhenAcknowledged(acknowledged, responseObserver);
+    }
+
+    /**
+     * Отвечает, когда все действия пачки приняты в соответствии с режимом доставки
+     */
+    @Override
+    public void collectUserActionBatch(UserActionBatchProto request, StreamObserver<Empty> responseObserver) {
+        log.debug("Поступил вызов метода collectUserActionBatch, действий: {}", request.getActionsCount());
+        CompletableFuture<Void> acknowledged;
+        try {
+            acknowledged = userActionHandler.collectUserActions(request.getActionsList());
         } catch (Exception e) {
-            responseObserver.onError(new StatusRuntimeException(
-                    Status.INTERNAL
-                            .withDescription(e.getLocalizedMessage())
-                            .withCause(e)
-            ));
+            acknowledged = CompletableFuture.failedFuture(e);
         }
+        respondWhenAcknowledged(acknowledged, responseObserver);
+    }
+
+    /**
+     * Действия из потока отправляются пачками по мере поступления. Ответ один на весь поток:
+     * после того как приняты все пачки
+     */
+    @Override
+    public StreamObserver<UserActionProto> collectUserActions(StreamObserver<Empty> responseObserver) {
+        return new StreamObserver<>() {
+            private List<UserActionProto> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+            private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+            private int count;
+
+            @Override
+            public void onNext(UserActionProto action) {
+                batch.add(action);
+                count++;
+                if (batch.size() == STREAM_BATCH_SIZE) {
+                    sendBatch();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("Поток действий прерван клиентом после {} действий", count, t);
+            }
+
+            @Override
+            public void onCompleted() {
+                sendBatch();
+                log.debug("Поток действий завершен, действий: {}", count);
+                respondWhenAcknowledged(acknowledged, responseObserver);
+            }
+
+            private void sendBatch() {
+                if (batch.isEmpty()) {
+                    return;
+                }
+                CompletableFuture<Void> sent;
+                try {
+                    sent = userActionHandler.collectUserActions(batch);
+                } catch (Exception e) {
+                    sent = CompletableFuture.failedFuture(e);
+                }
+                acknowledged = CompletableFuture.allOf(acknowledged, sent);
+                batch = new ArrayList<>(STREAM_BATCH_SIZE);
+            }
+        };
+    }
+
+    private void respondWhenAcknowledged(CompletableFuture<Void> acknowledged, StreamObserver<Empty> responseObserver) {
+        acknowledged.whenComplete((ignored, e) -> {
+            if (e != null) {
+                responseObserver.onError(new StatusRuntimeException(
+                        Status.INTERNAL
+                                .withDescription(e.getLocalizedMessage())
+                                .withCause(e)
+                ));
+                return;
+            }
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        });
     }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.ewm.producer;
+
+/**
+ * Когда коллектор считает действие принятым
+ */
+public enum DeliveryMode {
+    /**
+     * Сразу после передачи записи клиенту Kafka. Ошибки отправки только логируются
+     */
+    FIRE_AND_FORGET,
+    /**
+     * После подтверждения брокером, без блокировки потока gRPC: ответ отправляется из колбэка продюсера
+     */
+    ASYNC_ACK,
+    /**
+     * После подтверждения брокером, поток gRPC ждет подтверждения
+     */
+    SYNC
+}
@@ -1,5 +1,8 @@
 package ru.practicum.ewm.producer;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.producer.Producer;
@@ -7,21 +10,113 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.config.KafkaProducerProperties;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Отправляет записи в Kafka в режиме доставки из настроек. Время от отправки записи до ответа брокера
+ * пишется в таймер collector.kafka.send с тегами режима и результата, число записей в нем дает пропускную способность.
+ */
 @Component
 @Slf4j
 public class KafkaProducer {
     private final Producer<Long, SpecificRecordBase> producer;
+    private final DeliveryMode deliveryMode;
+    private final Duration closeTimeout;
+    private final Timer acknowledgedTimer;
+    private final Timer failedTimer;
 
-    public KafkaProducer(KafkaProducerProperties config) {
+    public KafkaProducer(KafkaProducerProperties config, MeterRegistry meterRegistry) {
         this.producer = new org.apache.kafka.clients.producer.KafkaProducer<>(config.getProducer());
+        this.deliveryMode = config.getDeliveryMode();
+        this.closeTimeout = Duration.ofSeconds(config.getCloseTimeoutSeconds());
+        this.acknowledgedTimer = buildTimer("acknowledged", meterRegistry);
+        this.failedTimer = buildTimer("failed", meterRegistry);
+        log.info("Режим доставки действий в Kafka: {}", deliveryMode);
     }
 
-    public void send(String topic, Instant timestamp, Long eventId, SpecificRecordBase action) {
+    public CompletableFuture<Void> send(String topic, Instant timestamp, Long key, SpecificRecordBase action) {
         ProducerRecord<Long, SpecificRecordBase> record =
-                new ProducerRecord<>(topic, null, timestamp.toEpochMilli(), eventId, action);
-        log.info("Сохраняю событие {}, в топик {}", action, topic);
-        producer.send(record);
+                new ProducerRecord<>(topic, null, timestamp.toEpochMilli(), key, action);
+        log.debug("Сохраняю событие {}, в топик {}", action, topic);
+        return sendAll(List.of(record));
+    }
+
+    /**
+     * Отправляет записи без ожидания каждой по отдельности. В режимах с подтверждением возвращаемый future
+     * завершается, когда брокер ответил на все записи, и ошибкой, если хотя бы одна не отправлена.
+     * В режиме {@link DeliveryMode#SYNC} ожидание ограничено настройкой продюсера delivery.timeout.ms
+     */
+    public CompletableFuture<Void> sendAll(List<ProducerRecord<Long, SpecificRecordBase>> records) {
+        CompletableFuture<?>[] acknowledgements = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            acknowledgements[i] = doSend(records.get(i));
+        }
+        log.debug("Отправлено записей: {}", records.size());
+        CompletableFuture<Void> acknowledged = CompletableFuture.allOf(acknowledgements);
+        return switch (deliveryMode) {
+            case FIRE_AND_FORGET -> CompletableFuture.completedFuture(null);
+            case ASYNC_ACK -> acknowledged;
+            case SYNC -> await(acknowledged);
+        };
+    }
+
+    /**
+     * Отправляет накопленные записи и закрывает продюсер. Вызывается при уничтожении бинов, то есть уже после
+     * остановки сервера gRPC в фазе SmartLifecycle: сервер перестает принимать вызовы и ждет завершения текущих
+     * в пределах grpc.server.shutdown-grace-period, поэтому новые записи сюда больше не приходят
+     */
+    @PreDestroy
+    public void close() {
+        log.info("Отправка накопленных записей и закрытие продюсера");
+        try {
+            producer.flush();
+        } finally {
+            producer.close(closeTimeout);
+        }
+    }
+
+    private CompletableFuture<Void> doSend(ProducerRecord<Long, SpecificRecordBase> record) {
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        long start = System.nanoTime();
+        producer.send(record, (metadata, exception) -> {
+            long elapsed = System.nanoTime() - start;
+            if (exception != null) {
+                failedTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                if (deliveryMode == DeliveryMode.FIRE_AND_FORGET) {
+                    log.warn("Запись для ключа {} не отправлена в топик {}", record.key(), record.topic(), exception);
+                }
+                acknowledged.completeExceptionally(exception);
+            } else {
+                acknowledgedTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                acknowledged.complete(null);
+            }
+        });
+        return acknowledged;
+    }
+
+    private CompletableFuture<Void> await(CompletableFuture<Void> acknowledged) {
+        try {
+            acknowledged.get();
+            return acknowledged;
+        } catch (ExecutionException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Timer buildTimer(String result, MeterRegistry meterRegistry) {
+        return Timer.builder("collector.kafka.send")
+                .description("Время от отправки записи в Kafka до ответа брокера")
+                .tag("mode", deliveryMode.name().toLowerCase())
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
 }
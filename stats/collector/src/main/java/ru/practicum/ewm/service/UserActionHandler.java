@@ -2,7 +2,18 @@ package ru.practicum.ewm.service;
 
 import ru.practicum.ewm.stats.protobuf.UserActionProto;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface UserActionHandler {
 
-    void collectUserAction(UserActionProto request);
+    /**
+     * @return Завершается, когда действие принято в соответствии с режимом доставки
+     */
+    CompletableFuture<Void> collectUserAction(UserActionProto request);
+
+    /**
+     * @return Завершается, когда все действия приняты в соответствии с режимом доставки
+     */
+    CompletableFuture<Void> collectUserActions(List<UserActionProto> requests);
 }
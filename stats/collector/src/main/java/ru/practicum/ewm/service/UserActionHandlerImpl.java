@@ -1,6 +1,8 @@
 package ru.practicum.ewm.service;
 
 import lombok.RequiredArgsConstructor;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.producer.KafkaProducer;
 import ru.practicum.ewm.stats.avro.ActionTypeAvro;
@@ -10,6 +12,9 @@ import ru.practicum.ewm.stats.protobuf.ActionTypeProto;
 import ru.practicum.ewm.stats.protobuf.UserActionProto;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -17,10 +22,23 @@ public class UserActionHandlerImpl implements UserActionHandler {
     private final KafkaProducer kafkaProducer;
 
     @Override
-    public void collectUserAction(UserActionProto request) {
+    public CompletableFuture<Void> collectUserAction(UserActionProto request) {
         UserActionAvro userActionAvro = mapToUserActionAvro(request);
-        kafkaProducer.send(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, userActionAvro.getTimestamp(), userActionAvro.getEventId(), userActionAvro
-        );
+        // Ключ - id пользователя: все действия пользователя попадают в одну партицию и обрабатываются одним
+        // потоком агрегатора по порядку
+        return kafkaProducer.send(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, userActionAvro.getTimestamp(),
+                userActionAvro.getUserId(), userActionAvro);
+    }
+
+    @Override
+    public CompletableFuture<Void> collectUserActions(List<UserActionProto> requests) {
+        List<ProducerRecord<Long, SpecificRecordBase>> records = new ArrayList<>(requests.size());
+        for (UserActionProto request : requests) {
+            UserActionAvro userActionAvro = mapToUserActionAvro(request);
+            records.add(new ProducerRecord<>(StatsTopics.STATS_USER_ACTIONS_V1_TOPIC, null,
+                    userActionAvro.getTimestamp().toEpochMilli(), userActionAvro.getUserId(), userActionAvro));
+        }
+        return kafkaProducer.sendAll(records);
     }
 
     private UserActionAvro mapToUserActionAvro(UserActionProto userActionProto) {
@@ -8,9 +8,14 @@ import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.common.serialization.Deserializer;
 
+/**
+ * Декодер переиспользуется между записями, у каждого потока свой. Записи не переиспользуются:
+ * консьюмер возвращает из опроса все записи пачки сразу, и повторно заполненный объект испортил бы предыдущие.
+ */
 public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
     private final DecoderFactory decoderFactory;
     private final DatumReader<T> reader;
+    private final ThreadLocal<BinaryDecoder> decoders = new ThreadLocal<>();
 
     public BaseAvroDeserializer(Schema schema) {
         this(DecoderFactory.get(), schema);
@@ -25,7 +30,8 @@ public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deser
     public T deserialize(String topic, byte[] data) {
         try {
             if (data != null) {
-                BinaryDecoder decoder = decoderFactory.binaryDecoder(data, null);
+                BinaryDecoder decoder = decoderFactory.binaryDecoder(data, decoders.get());
+                decoders.set(decoder);
                 return this.reader.read(null, decoder);
             }
             return null;
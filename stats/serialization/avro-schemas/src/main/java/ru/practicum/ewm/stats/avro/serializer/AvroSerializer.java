@@ -10,23 +10,56 @@ import org.apache.kafka.common.serialization.Serializer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Продюсер вызывает сериализатор в потоке, отправляющем запись, поэтому буфер и энкодер у каждого потока свои
+ * и переиспользуются между записями. Писатели не хранят состояния записи и кешируются по классу записи.
+ * На запись выделяется только итоговый массив байт.
+ */
 public class AvroSerializer implements Serializer<SpecificRecordBase> {
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<Class<?>, DatumWriter<SpecificRecordBase>> writers = new ConcurrentHashMap<>();
+    private final ThreadLocal<EncoderBuffer> buffers = ThreadLocal.withInitial(EncoderBuffer::new);
 
     @Override
     public byte[] serialize(String topic, SpecificRecordBase data) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            byte[] result = null;
-            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
-            if (data != null) {
-                DatumWriter<SpecificRecordBase> writer = new SpecificDatumWriter<>(data.getSchema());
-                writer.write(data, encoder);
-                encoder.flush();
-                result = out.toByteArray();
-            }
-            return result;
+        if (data == null) {
+            return null;
+        }
+        EncoderBuffer buffer = buffers.get();
+        try {
+            getWriter(data).write(data, buffer.encoder);
+            return buffer.out.toByteArray();
         } catch (IOException ex) {
             throw new SerializationException("Ошибка сериализации данных для топика [" + topic + "]", ex);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    private DatumWriter<SpecificRecordBase> getWriter(SpecificRecordBase data) {
+        return writers.computeIfAbsent(data.getClass(), type -> new SpecificDatumWriter<>(data.getSchema()));
+    }
+
+    private static class EncoderBuffer {
+        private ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        // Энкодер без собственного буфера пишет сразу в поток, сбрасывать его не нужно
+        private BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+
+        /**
+         * Буфер, выросший на редкой большой записи, не удерживается потоком
+         */
+        private void reset() {
+            if (out.size() > MAX_RETAINED_BUFFER_SIZE) {
+                out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+                encoder = EncoderFactory.get().directBinaryEncoder(out, encoder);
+            } else {
+                out.reset();
+            }
         }
     }
 }
@@ -0,0 +1,21 @@
+package ru.practicum.ewm.stats.client;
+
+import ru.practicum.ewm.stats.protobuf.RecommendedEventProto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Неблокирующий вариант {@link StatClient}. Вызовы не занимают поток вызывающего и ограничены дедлайном:
+ * по его истечении future завершается с StatusRuntimeException со статусом DEADLINE_EXCEEDED
+ */
+public interface AsyncStatClient {
+
+    CompletableFuture<List<RecommendedEventProto>> getSimilarEvents(long eventId, long userId, int maxResults);
+
+    CompletableFuture<List<RecommendedEventProto>> getRecommendationsForUser(long userId, int maxResult);
+
+    CompletableFuture<List<RecommendedEventProto>> getInteractionsCount(List<Long> eventIdList);
+
+    CompletableFuture<Void> collectUserAction(long userId, long eventId, UserActionType actionType);
+}
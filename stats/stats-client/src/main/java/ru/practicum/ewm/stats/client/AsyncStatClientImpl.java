@@ -0,0 +1,103 @@
+package ru.practicum.ewm.stats.client;
+
+import com.google.protobuf.Empty;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.protobuf.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class AsyncStatClientImpl implements AsyncStatClient {
+    @GrpcClient("analyzer")
+    private RecommendationsControllerGrpc.RecommendationsControllerStub client;
+    @GrpcClient("collector")
+    private UserActionControllerGrpc.UserActionControllerStub userActionClient;
+    // Дедлайн потокового ответа ограничивает все его сообщения, поэтому задается для каждого вызова отдельно
+    @Value("${stats-client.deadline-ms.similar-events:${stats-client.deadline-ms.analyzer:1000}}")
+    private long similarEventsDeadlineMs;
+    @Value("${stats-client.deadline-ms.recommendations:${stats-client.deadline-ms.analyzer:1000}}")
+    private long recommendationsDeadlineMs;
+    @Value("${stats-client.deadline-ms.interactions-count:${stats-client.deadline-ms.analyzer:1000}}")
+    private long interactionsCountDeadlineMs;
+    @Value("${stats-client.deadline-ms.collector:500}")
+    private long collectorDeadlineMs;
+
+    @Override
+    public CompletableFuture<Void> collectUserAction(long userId, long eventId, UserActionType actionType) {
+        ResultObserver<Empty> observer = new ResultObserver<>();
+        userActionClient.withDeadlineAfter(collectorDeadlineMs, TimeUnit.MILLISECONDS)
+                .collectUserAction(UserActionMapper.toProto(userId, eventId, actionType), observer);
+        return observer.future.thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<List<RecommendedEventProto>> getSimilarEvents(long eventId, long userId, int maxResults) {
+        SimilarEventsRequestProto request = SimilarEventsRequestProto.newBuilder()
+                .setEventId(eventId)
+                .setUserId(userId)
+                .setMaxResults(maxResults)
+                .build();
+        ResultObserver<RecommendedEventProto> observer = new ResultObserver<>();
+        analyzer(similarEventsDeadlineMs).getSimilarEvents(request, observer);
+        return observer.future;
+    }
+
+    @Override
+    public CompletableFuture<List<RecommendedEventProto>> getRecommendationsForUser(long userId, int maxResult) {
+        UserPredictionsRequestProto request = UserPredictionsRequestProto.newBuilder()
+                .setUserId(userId)
+                .setMaxResults(maxResult)
+                .build();
+        ResultObserver<RecommendedEventProto> observer = new ResultObserver<>();
+        analyzer(recommendationsDeadlineMs).getRecommendationsForUser(request, observer);
+        return observer.future;
+    }
+
+    @Override
+    public CompletableFuture<List<RecommendedEventProto>> getInteractionsCount(List<Long> eventIdList) {
+        InteractionsCountRequestProto request = InteractionsCountRequestProto.newBuilder()
+                .addAllEventId(eventIdList)
+                .build();
+        ResultObserver<RecommendedEventProto> observer = new ResultObserver<>();
+        analyzer(interactionsCountDeadlineMs).getInteractionsCount(request, observer);
+        return observer.future;
+    }
+
+    /**
+     * Дедлайн отсчитывается от момента вызова, поэтому заглушка с ним создается на каждый вызов
+     */
+    private RecommendationsControllerGrpc.RecommendationsControllerStub analyzer(long deadlineMs) {
+        return client.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Собирает сообщения ответа и завершает future по окончании потока
+     */
+    private static class ResultObserver<T> implements StreamObserver<T> {
+        private final List<T> results = new ArrayList<>();
+        private final CompletableFuture<List<T>> future = new CompletableFuture<>();
+
+        @Override
+        public void onNext(T value) {
+            results.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            future.completeExceptionally(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            future.complete(results);
+        }
+    }
+}
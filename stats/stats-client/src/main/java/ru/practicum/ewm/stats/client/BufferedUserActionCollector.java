@@ -0,0 +1,119 @@
+package ru.practicum.ewm.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.stats.protobuf.UserActionBatchProto;
+import ru.practicum.ewm.stats.protobuf.UserActionControllerGrpc;
+import ru.practicum.ewm.stats.protobuf.UserActionProto;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Копит действия в ограниченной очереди без блокировок и отправляет их коллектору пачками из отдельного потока.
+ * Пачка уходит по таймеру или сразу, как только набрано batch-size действий. Если очередь заполнена или
+ * коллектор недоступен, действия отбрасываются и учитываются в метрике stats.client.user-actions с тегом
+ * result=dropped.
+ */
+@Service
+@Slf4j
+public class BufferedUserActionCollector implements UserActionCollector, DisposableBean {
+    private final Queue<UserActionProto> queue = new ConcurrentLinkedQueue<>();
+    // Очередь не хранит размер, поэтому ограничение соблюдается по отдельному счетчику
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter sent = Metrics.counter("stats.client.user-actions", "result", "sent");
+    private final Counter dropped = Metrics.counter("stats.client.user-actions", "result", "dropped");
+    private final int capacity;
+    private final int batchSize;
+    private final long deadlineMs;
+    @GrpcClient("collector")
+    private UserActionControllerGrpc.UserActionControllerBlockingStub userActionClient;
+
+    public BufferedUserActionCollector(@Value("${stats-client.buffer.capacity:10000}") int capacity,
+                                       @Value("${stats-client.buffer.batch-size:500}") int batchSize,
+                                       @Value("${stats-client.buffer.flush-interval-ms:200}") long flushIntervalMs,
+                                       @Value("${stats-client.deadline-ms.collector:500}") long deadlineMs) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.deadlineMs = deadlineMs;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-action-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean collect(long userId, long eventId, UserActionType actionType) {
+        int newSize = size.incrementAndGet();
+        if (newSize > capacity) {
+            size.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+        queue.offer(UserActionMapper.toProto(userId, eventId, actionType));
+        if (newSize >= batchSize && !flusher.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Поток отправки остановлен между проверкой и вызовом: действие уйдет с отправкой при остановке
+                flushScheduled.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Выполняется в потоке отправки, а при остановке - после его завершения
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            while (!queue.isEmpty()) {
+                UserActionBatchProto.Builder batch = UserActionBatchProto.newBuilder();
+                UserActionProto action;
+                while (batch.getActionsCount() < batchSize && (action = queue.poll()) != null) {
+                    batch.addActions(action);
+                }
+                size.addAndGet(-batch.getActionsCount());
+                send(batch.build());
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при отправке действий пользователей", e);
+        }
+    }
+
+    private void send(UserActionBatchProto batch) {
+        try {
+            userActionClient.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS).collectUserActionBatch(batch);
+            sent.increment(batch.getActionsCount());
+        } catch (Exception e) {
+            dropped.increment(batch.getActionsCount());
+            log.warn("Не удалось передать пачку действий пользователей, отброшено: {}", batch.getActionsCount(), e);
+        }
+    }
+
+    /**
+     * Отправляет накопленные действия при остановке
+     */
+    @Override
+    public void destroy() throws Exception {
+        flusher.shutdown();
+        flusher.awaitTermination(deadlineMs * 2, TimeUnit.MILLISECONDS);
+        flush();
+    }
+}
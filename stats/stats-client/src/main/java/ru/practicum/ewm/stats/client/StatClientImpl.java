@@ -1,8 +1,8 @@
 package ru.practicum.ewm.stats.client;
 
-import com.google.protobuf.Timestamp;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.stats.protobuf.*;
 
@@ -10,6 +10,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -20,21 +21,20 @@ public class StatClientImpl implements StatClient {
     private RecommendationsControllerGrpc.RecommendationsControllerBlockingStub client;
     @GrpcClient("collector")
     private UserActionControllerGrpc.UserActionControllerBlockingStub userActionClient;
+    // Дедлайн потокового ответа ограничивает все его сообщения, поэтому задается для каждого вызова отдельно
+    @Value("${stats-client.deadline-ms.similar-events:${stats-client.deadline-ms.analyzer:1000}}")
+    private long similarEventsDeadlineMs;
+    @Value("${stats-client.deadline-ms.recommendations:${stats-client.deadline-ms.analyzer:1000}}")
+    private long recommendationsDeadlineMs;
+    @Value("${stats-client.deadline-ms.interactions-count:${stats-client.deadline-ms.analyzer:1000}}")
+    private long interactionsCountDeadlineMs;
+    @Value("${stats-client.deadline-ms.collector:500}")
+    private long collectorDeadlineMs;
 
     @Override
     public void collectUserAction(long userId, long eventId, UserActionType actionType) {
-        ActionTypeProto action = switch (actionType) {
-            case LIKE -> ActionTypeProto.ACTION_LIKE;
-            case REGISTER -> ActionTypeProto.ACTION_REGISTER;
-            case VIEW -> ActionTypeProto.ACTION_VIEW;
-        };
-        UserActionProto request = UserActionProto.newBuilder()
-                .setUserId(userId)
-                .setEventId(eventId)
-                .setActionType(action)
-                .setTimestamp(Timestamp.newBuilder().setSeconds(System.currentTimeMillis() / 1000).build())
-                .build();
-        userActionClient.collectUserAction(request);
+        userActionClient.withDeadlineAfter(collectorDeadlineMs, TimeUnit.MILLISECONDS)
+                .collectUserAction(UserActionMapper.toProto(userId, eventId, actionType));
     }
 
     @Override
@@ -44,7 +44,8 @@ public class StatClientImpl implements StatClient {
                 .setUserId(userId)
                 .setMaxResults(maxResults)
                 .build();
-        Iterator<RecommendedEventProto> iterator = client.getSimilarEvents(request);
+        Iterator<RecommendedEventProto> iterator = analyzer(similarEventsDeadlineMs)
+                .getSimilarEvents(request);
         return asStream(iterator);
     }
 
@@ -54,7 +55,8 @@ public class StatClientImpl implements StatClient {
                 .setUserId(userId)
                 .setMaxResults(maxResult)
                 .build();
-        Iterator<RecommendedEventProto> iterator = client.getRecommendationsForUser(request);
+        Iterator<RecommendedEventProto> iterator = analyzer(recommendationsDeadlineMs)
+                .getRecommendationsForUser(request);
         return asStream(iterator);
     }
 
@@ -63,10 +65,15 @@ public class StatClientImpl implements StatClient {
         InteractionsCountRequestProto request = InteractionsCountRequestProto.newBuilder()
                 .addAllEventId(eventIdList)
                 .build();
-        Iterator<RecommendedEventProto> iterator = client.getInteractionsCount(request);
+        Iterator<RecommendedEventProto> iterator = analyzer(interactionsCountDeadlineMs)
+                .getInteractionsCount(request);
         return asStream(iterator);
     }
 
+    private RecommendationsControllerGrpc.RecommendationsControllerBlockingStub analyzer(long deadlineMs) {
+        return client.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS);
+    }
+
     private Stream<RecommendedEventProto> asStream(Iterator<RecommendedEventProto> iterator) {
         return StreamSupport.stream(
                 Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED),
@@ -0,0 +1,12 @@
+package ru.practicum.ewm.stats.client;
+
+/**
+ * Передача действий пользователей без ожидания сети: действие ставится в очередь и отправляется пачкой позже
+ */
+public interface UserActionCollector {
+
+    /**
+     * @return false, если очередь заполнена и действие отброшено
+     */
+    boolean collect(long userId, long eventId, UserActionType actionType);
+}
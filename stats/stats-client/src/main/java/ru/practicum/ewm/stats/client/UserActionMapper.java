@@ -0,0 +1,24 @@
+package ru.practicum.ewm.stats.client;
+
+import com.google.protobuf.Timestamp;
+import lombok.experimental.UtilityClass;
+import ru.practicum.ewm.stats.protobuf.ActionTypeProto;
+import ru.practicum.ewm.stats.protobuf.UserActionProto;
+
+@UtilityClass
+class UserActionMapper {
+
+    UserActionProto toProto(long userId, long eventId, UserActionType actionType) {
+        ActionTypeProto action = switch (actionType) {
+            case LIKE -> ActionTypeProto.ACTION_LIKE;
+            case REGISTER -> ActionTypeProto.ACTION_REGISTER;
+            case VIEW -> ActionTypeProto.ACTION_VIEW;
+        };
+        return UserActionProto.newBuilder()
+                .setUserId(userId)
+                .setEventId(eventId)
+                .setActionType(action)
+                .setTimestamp(Timestamp.newBuilder().setSeconds(System.currentTimeMillis() / 1000).build())
+                .build();
+    }
+}